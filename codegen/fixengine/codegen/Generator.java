@@ -0,0 +1,563 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.codegen;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Generates a decoder and an encoder per message type from a QuickFIX-style
+ * XML dictionary. Decoders extend <code>fixengine.messages.BodyDecoder</code>
+ * and encoders extend <code>fixengine.messages.BodyEncoder</code>; both map
+ * every field of the message to a fixed slot so that the generated code is
+ * straight-line and does not go through the generic field classes.
+ *
+ * Components are inlined. Each repeating group gets a decoder and an encoder
+ * of its own, named after the message and the group's NumInGroup field,
+ * for one instance of the group.
+ *
+ * Usage: <code>Generator &lt;dictionary.xml&gt; &lt;output dir&gt; &lt;package&gt;</code>
+ */
+public class Generator {
+    enum Type {
+        INT, DECIMAL, CHAR, BOOLEAN, TIMESTAMP, STRING;
+
+        static Type of(String fixType) {
+            if (fixType.equals("INT") || fixType.equals("LENGTH") || fixType.equals("SEQNUM")
+                    || fixType.equals("NUMINGROUP") || fixType.equals("DAYOFMONTH"))
+                return INT;
+            if (fixType.equals("FLOAT") || fixType.equals("QTY") || fixType.equals("PRICE")
+                    || fixType.equals("PRICEOFFSET") || fixType.equals("AMT") || fixType.equals("PERCENTAGE"))
+                return DECIMAL;
+            if (fixType.equals("CHAR"))
+                return CHAR;
+            if (fixType.equals("BOOLEAN"))
+                return BOOLEAN;
+            if (fixType.equals("UTCTIMESTAMP"))
+                return TIMESTAMP;
+            return STRING;
+        }
+    }
+
+    static class Field {
+        final int tag;
+        final String name;
+        final Type type;
+
+        Field(int tag, String name, Type type) {
+            this.tag = tag;
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    static class Entry {
+        final Field field;
+        final boolean required;
+        final MessageType group;
+
+        Entry(Field field, boolean required, MessageType group) {
+            this.field = field;
+            this.required = required;
+            this.group = group;
+        }
+    }
+
+    /*
+     * A message type or, with a null msgType, one instance of a repeating
+     * group. The first entry of a group is its delimiter.
+     */
+    static class MessageType {
+        final String name;
+        final String msgType;
+        final List<Entry> entries = new ArrayList<Entry>();
+
+        MessageType(String name, String msgType) {
+            this.name = name;
+            this.msgType = msgType;
+        }
+
+        boolean isGroup() {
+            return msgType == null;
+        }
+
+        /* Tags of all entries, including the members of groups. */
+        Set<Integer> tags() {
+            Set<Integer> result = new LinkedHashSet<Integer>();
+            for (Entry entry : entries) {
+                result.add(entry.field.tag);
+                if (entry.group != null)
+                    result.addAll(entry.group.tags());
+            }
+            return result;
+        }
+    }
+
+    private final Map<String, Field> fields = new HashMap<String, Field>();
+    private final Map<String, Element> components = new HashMap<String, Element>();
+    private final Set<Integer> envelopeTags = new LinkedHashSet<Integer>();
+    private final List<MessageType> messages = new ArrayList<MessageType>();
+    private final String source;
+
+    public Generator(Document dictionary, String source) {
+        this.source = source;
+        Element root = dictionary.getDocumentElement();
+        for (Element field : children(first(root, "fields"), "field")) {
+            String name = field.getAttribute("name");
+            fields.put(name, new Field(Integer.parseInt(field.getAttribute("number")), name, Type.of(field.getAttribute("type"))));
+        }
+        Element componentsElement = first(root, "components");
+        if (componentsElement != null) {
+            for (Element component : children(componentsElement, "component"))
+                components.put(component.getAttribute("name"), component);
+        }
+        MessageType envelope = new MessageType("", "");
+        collect(first(root, "header"), envelope);
+        collect(first(root, "trailer"), envelope);
+        envelopeTags.addAll(envelope.tags());
+        for (Element message : children(first(root, "messages"), "message")) {
+            MessageType type = new MessageType(message.getAttribute("name"), message.getAttribute("msgtype"));
+            collect(message, type);
+            messages.add(type);
+        }
+    }
+
+    private void collect(Element parent, MessageType type) {
+        if (parent == null)
+            return;
+        for (Element child : children(parent, null)) {
+            String name = child.getAttribute("name");
+            boolean required = "Y".equals(child.getAttribute("required"));
+            if (child.getTagName().equals("component")) {
+                Element component = components.get(name);
+                if (component == null)
+                    throw new IllegalArgumentException("Undefined component: " + name);
+                collect(component, type);
+                continue;
+            }
+            Field field = field(name);
+            MessageType group = null;
+            if (child.getTagName().equals("group")) {
+                group = new MessageType(type.name + name, null);
+                collect(child, group);
+                if (group.entries.isEmpty())
+                    throw new IllegalArgumentException("Empty group: " + name);
+            }
+            type.entries.add(new Entry(field, required, group));
+        }
+    }
+
+    private Field field(String name) {
+        Field result = fields.get(name);
+        if (result == null)
+            throw new IllegalArgumentException("Undefined field: " + name);
+        return result;
+    }
+
+    public void generate(File outputDir, String packageName) throws IOException {
+        File dir = new File(outputDir, packageName.replace('.', File.separatorChar));
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Unable to create directory: " + dir);
+        for (MessageType message : messages)
+            generate(dir, packageName, message);
+    }
+
+    private void generate(File dir, String packageName, MessageType type) throws IOException {
+        write(new File(dir, type.name + "Decoder.java"), decoder(packageName, type));
+        write(new File(dir, type.name + "Encoder.java"), encoder(packageName, type));
+        for (Entry entry : type.entries) {
+            if (entry.group != null)
+                generate(dir, packageName, entry.group);
+        }
+    }
+
+    String decoder(String packageName, MessageType message) {
+        String className = message.name + "Decoder";
+        StringBuilder sb = new StringBuilder();
+        preamble(sb, packageName, "fixengine.messages.BodyDecoder");
+        if (message.isGroup())
+            sb.append("/** Decodes one instance of a repeating group. */\n");
+        sb.append("public final class ").append(className).append(" extends BodyDecoder {\n");
+        if (!message.isGroup())
+            sb.append("    public static final String MSG_TYPE = \"").append(message.msgType).append("\";\n\n");
+        for (int slot = 0; slot < message.entries.size(); slot++)
+            sb.append("    private static final int ").append(constant(message.entries.get(slot).field)).append(" = ").append(slot).append(";\n");
+        sb.append("\n    private static final byte[] TYPES = {");
+        for (int slot = 0; slot < message.entries.size(); slot++)
+            sb.append(slot == 0 ? " " : ", ").append(message.entries.get(slot).field.type);
+        sb.append(" };\n");
+        sb.append("    private static final int[] TAGS = {");
+        for (int slot = 0; slot < message.entries.size(); slot++)
+            sb.append(slot == 0 ? " " : ", ").append(message.entries.get(slot).field.tag);
+        sb.append(" };\n");
+        boolean hasGroups = false;
+        for (Entry entry : message.entries) {
+            if (entry.group != null) {
+                if (!hasGroups)
+                    sb.append("\n");
+                hasGroups = true;
+                String groupClass = entry.group.name + "Decoder";
+                sb.append("    private final ").append(groupClass).append(" ").append(variable(entry.field))
+                    .append(" = new ").append(groupClass).append("();\n");
+            }
+        }
+        sb.append("\n    public ").append(className).append("() {\n");
+        sb.append("        super(TYPES, TAGS);\n");
+        sb.append("    }\n\n");
+
+        sb.append("    @Override protected int slot(int tag) {\n");
+        sb.append("        switch (tag) {\n");
+        Set<Integer> defined = new LinkedHashSet<Integer>();
+        for (Entry entry : message.entries) {
+            sb.append("        case ").append(entry.field.tag).append(": return ").append(constant(entry.field)).append(";\n");
+            defined.add(entry.field.tag);
+        }
+        Set<Integer> members = new LinkedHashSet<Integer>();
+        for (Entry entry : message.entries) {
+            if (entry.group != null)
+                members.addAll(entry.group.tags());
+        }
+        members.removeAll(defined);
+        cases(sb, members, "GROUP_MEMBER");
+        if (!message.isGroup()) {
+            Set<Integer> header = new LinkedHashSet<Integer>(envelopeTags);
+            header.removeAll(defined);
+            header.removeAll(members);
+            cases(sb, header, "HEADER_TAG");
+        }
+        sb.append("        default: return -1;\n");
+        sb.append("        }\n");
+        sb.append("    }\n\n");
+
+        if (hasGroups) {
+            sb.append("    @Override protected BodyDecoder group(int slot) {\n");
+            sb.append("        switch (slot) {\n");
+            for (Entry entry : message.entries) {
+                if (entry.group != null)
+                    sb.append("        case ").append(constant(entry.field)).append(": return ").append(variable(entry.field)).append(";\n");
+            }
+            sb.append("        default: return null;\n");
+            sb.append("        }\n");
+            sb.append("    }\n\n");
+        }
+
+        sb.append("    @Override protected boolean validate() {\n");
+        for (Entry entry : message.entries) {
+            if (entry.required) {
+                sb.append("        if (!has(").append(constant(entry.field)).append("))\n");
+                sb.append("            return missing(").append(entry.field.tag).append(");\n");
+            }
+        }
+        sb.append("        return true;\n");
+        sb.append("    }\n");
+
+        for (Entry entry : message.entries) {
+            Field field = entry.field;
+            String slot = constant(field);
+            sb.append("\n    public boolean has").append(field.name).append("() {\n");
+            sb.append("        return has(").append(slot).append(");\n");
+            sb.append("    }\n");
+            switch (field.type) {
+            case INT:
+                getter(sb, "int", field.name, "getInt(" + slot + ")");
+                if (entry.group != null) {
+                    String groupClass = entry.group.name + "Decoder";
+                    sb.append("\n    public ").append(groupClass).append(" get").append(field.name).append("Instance(int index) {\n");
+                    sb.append("        return instance(").append(slot).append(", ").append(variable(field)).append(", index);\n");
+                    sb.append("    }\n");
+                }
+                break;
+            case CHAR:
+                getter(sb, "char", field.name, "getChar(" + slot + ")");
+                break;
+            case BOOLEAN:
+                getter(sb, "boolean", field.name, "getBoolean(" + slot + ")");
+                break;
+            case TIMESTAMP:
+                sb.append("\n    /** Returns microseconds since the epoch. */");
+                getter(sb, "long", field.name, "getTimestamp(" + slot + ")");
+                break;
+            case DECIMAL:
+                sb.append("\n    public long get").append(field.name).append("(int scale) {\n");
+                sb.append("        return getDecimal(").append(slot).append(", scale);\n");
+                sb.append("    }\n");
+                getter(sb, "double", field.name + "AsDouble", "getDouble(" + slot + ")");
+                break;
+            default:
+                getter(sb, "String", field.name, "getString(" + slot + ")");
+                sb.append("\n    public int get").append(field.name).append("(byte[] dst, int offset) {\n");
+                sb.append("        return getBytes(").append(slot).append(", dst, offset);\n");
+                sb.append("    }\n");
+                break;
+            }
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void cases(StringBuilder sb, Set<Integer> tags, String result) {
+        for (Integer tag : tags)
+            sb.append("        case ").append(tag).append(":\n");
+        if (!tags.isEmpty())
+            sb.append("            return ").append(result).append(";\n");
+    }
+
+    private static void getter(StringBuilder sb, String type, String name, String expression) {
+        sb.append("\n    public ").append(type).append(" get").append(name).append("() {\n");
+        sb.append("        return ").append(expression).append(";\n");
+        sb.append("    }\n");
+    }
+
+    String encoder(String packageName, MessageType message) {
+        String className = message.name + "Encoder";
+        List<Entry> entries = message.entries;
+        boolean hasGroups = false;
+        for (Entry entry : entries)
+            hasGroups |= entry.group != null;
+        StringBuilder sb = new StringBuilder();
+        if (hasGroups)
+            preamble(sb, packageName, "fixengine.messages.BodyEncoder", "java.nio.ByteBuffer", "java.util.ArrayList", "java.util.List");
+        else
+            preamble(sb, packageName, "fixengine.messages.BodyEncoder", "java.nio.ByteBuffer");
+        if (message.isGroup())
+            sb.append("/** Encodes one instance of a repeating group. */\n");
+        sb.append("public final class ").append(className).append(" extends BodyEncoder {\n");
+        if (!message.isGroup())
+            sb.append("    public static final String MSG_TYPE = \"").append(message.msgType).append("\";\n\n");
+        for (Entry entry : entries)
+            sb.append("    private static final byte[] ").append(constant(entry.field)).append(" = tag(").append(entry.field.tag).append(");\n");
+        sb.append("\n");
+        for (Entry entry : entries) {
+            Field field = entry.field;
+            String variable = variable(field);
+            if (entry.group != null) {
+                String groupClass = entry.group.name + "Encoder";
+                sb.append("    private final List<").append(groupClass).append("> ").append(variable)
+                    .append(" = new ArrayList<").append(groupClass).append(">();\n");
+                sb.append("    private int ").append(variable).append("Count;\n");
+                continue;
+            }
+            switch (field.type) {
+            case STRING:
+                sb.append("    private CharSequence ").append(variable).append(";\n");
+                continue;
+            case INT:
+                sb.append("    private long ").append(variable).append(";\n");
+                break;
+            case DECIMAL:
+                sb.append("    private long ").append(variable).append(";\n");
+                sb.append("    private int ").append(variable).append("Scale;\n");
+                break;
+            case TIMESTAMP:
+                sb.append("    private long ").append(variable).append(";\n");
+                sb.append("    private int ").append(variable).append("Precision;\n");
+                break;
+            default:
+                sb.append("    private ").append(field.type == Type.CHAR ? "char " : "boolean ").append(variable).append(";\n");
+                break;
+            }
+            sb.append("    private boolean has").append(field.name).append(";\n");
+        }
+
+        for (Entry entry : entries) {
+            Field field = entry.field;
+            String variable = variable(field);
+            if (entry.group != null) {
+                String groupClass = entry.group.name + "Encoder";
+                sb.append("\n    /** Adds an instance to the group; instances are reused after reset(). */\n");
+                sb.append("    public ").append(groupClass).append(" add").append(field.name).append("() {\n");
+                sb.append("        if (").append(variable).append("Count == ").append(variable).append(".size())\n");
+                sb.append("            ").append(variable).append(".add(new ").append(groupClass).append("());\n");
+                sb.append("        ").append(groupClass).append(" result = ").append(variable).append(".get(").append(variable).append("Count++);\n");
+                sb.append("        result.reset();\n");
+                sb.append("        return result;\n");
+                sb.append("    }\n");
+                continue;
+            }
+            sb.append("\n    public ").append(className).append(" set").append(field.name).append("(");
+            switch (field.type) {
+            case STRING:
+                sb.append("CharSequence value) {\n");
+                sb.append("        ").append(variable).append(" = value;\n");
+                break;
+            case INT:
+                sb.append("long value) {\n");
+                sb.append("        ").append(variable).append(" = value;\n");
+                break;
+            case DECIMAL:
+                sb.append("long mantissa, int scale) {\n");
+                sb.append("        ").append(variable).append(" = mantissa;\n");
+                sb.append("        ").append(variable).append("Scale = scale;\n");
+                break;
+            case TIMESTAMP:
+                sb.append("long micros, int precision) {\n");
+                sb.append("        ").append(variable).append(" = micros;\n");
+                sb.append("        ").append(variable).append("Precision = precision;\n");
+                break;
+            default:
+                sb.append(field.type == Type.CHAR ? "char" : "boolean").append(" value) {\n");
+                sb.append("        ").append(variable).append(" = value;\n");
+                break;
+            }
+            if (field.type != Type.STRING)
+                sb.append("        has").append(field.name).append(" = true;\n");
+            sb.append("        return this;\n");
+            sb.append("    }\n");
+        }
+
+        sb.append("\n    @Override public void encodeBody(ByteBuffer b) {\n");
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            Field field = entry.field;
+            String variable = variable(field);
+            String tag = constant(field);
+            String present;
+            if (entry.group != null)
+                present = variable + "Count > 0";
+            else if (field.type == Type.STRING)
+                present = variable + " != null";
+            else
+                present = "has" + field.name;
+            sb.append("        if (").append(present).append(")\n");
+            sb.append("            ");
+            if (entry.group != null) {
+                sb.append("putGroup(b, ").append(tag).append(", ").append(variable).append(", ").append(variable).append("Count);\n");
+            } else {
+                switch (field.type) {
+                case STRING:
+                    sb.append("putString(b, ").append(tag).append(", ").append(variable).append(");\n");
+                    break;
+                case INT:
+                    sb.append("putInt(b, ").append(tag).append(", ").append(variable).append(");\n");
+                    break;
+                case DECIMAL:
+                    sb.append("putDecimal(b, ").append(tag).append(", ").append(variable).append(", ").append(variable).append("Scale);\n");
+                    break;
+                case TIMESTAMP:
+                    sb.append("putTimestamp(b, ").append(tag).append(", ").append(variable).append(", ").append(variable).append("Precision);\n");
+                    break;
+                case CHAR:
+                    sb.append("putChar(b, ").append(tag).append(", ").append(variable).append(");\n");
+                    break;
+                default:
+                    sb.append("putBoolean(b, ").append(tag).append(", ").append(variable).append(");\n");
+                    break;
+                }
+            }
+            /* An instance of a group cannot be decoded without its delimiter. */
+            if (entry.required || message.isGroup() && i == 0) {
+                sb.append("        else\n");
+                sb.append("            missing(\"").append(field.name).append("(").append(field.tag).append(")\");\n");
+            }
+        }
+        sb.append("    }\n");
+
+        sb.append("\n    @Override public void reset() {\n");
+        for (Entry entry : entries) {
+            if (entry.group != null)
+                sb.append("        ").append(variable(entry.field)).append("Count = 0;\n");
+            else if (entry.field.type == Type.STRING)
+                sb.append("        ").append(variable(entry.field)).append(" = null;\n");
+            else
+                sb.append("        has").append(entry.field.name).append(" = false;\n");
+        }
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private void preamble(StringBuilder sb, String packageName, String... imports) {
+        sb.append("/* Generated from ").append(source).append(". Do not edit. */\n");
+        sb.append("package ").append(packageName).append(";\n\n");
+        for (String i : imports)
+            sb.append("import ").append(i).append(";\n");
+        sb.append("\n");
+    }
+
+    static String constant(Field field) {
+        StringBuilder sb = new StringBuilder();
+        String name = field.name;
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (i > 0 && Character.isUpperCase(ch) && (Character.isLowerCase(name.charAt(i - 1))
+                    || i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1))))
+                sb.append('_');
+            sb.append(Character.toUpperCase(ch));
+        }
+        return sb.toString();
+    }
+
+    static String variable(Field field) {
+        String name = field.name;
+        int upper = 0;
+        while (upper < name.length() && Character.isUpperCase(name.charAt(upper)))
+            upper++;
+        /* Keep the first letter of the next word: IDSource is idSource. */
+        if (upper > 1 && upper < name.length())
+            upper--;
+        return name.substring(0, upper).toLowerCase() + name.substring(upper);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static Element first(Element parent, String name) {
+        List<Element> result = children(parent, name);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> result = new ArrayList<Element>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE && (name == null || node.getNodeName().equals(name)))
+                result.add((Element) node);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Usage: Generator <dictionary.xml> <output dir> <package>");
+            System.exit(1);
+        }
+        File dictionary = new File(args[0]);
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(dictionary);
+        new Generator(document, dictionary.getName()).generate(new File(args[1]), args[2]);
+    }
+}
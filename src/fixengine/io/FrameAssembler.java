@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Assembles FIX frames from arbitrarily split byte chunks. Frames are located
+ * with the BeginString and BodyLength fields and are handed to the callback as
+ * a view of the assembler's internal buffer, so no bytes are copied per frame.
+ * The view is only valid for the duration of the callback.
+ *
+ * Note: this class is <b>not thread-safe</b>!
+ */
+public class FrameAssembler {
+    public interface Callback {
+        void frame(ByteBuffer frame);
+        void garbled(int length);
+    }
+
+    private static final int NEED_MORE = Framing.NEED_MORE;
+    private static final int GARBLED = Framing.GARBLED;
+
+    private final int maxFrameSize;
+    private ByteBuffer buffer;
+    private ByteBuffer frame;
+    private int start;
+
+    public FrameAssembler(int capacity, int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+        this.buffer = ByteBuffer.allocate(capacity);
+        this.frame = buffer.duplicate();
+    }
+
+    /**
+     * Returns the buffer that the next chunk should be read into. Reading
+     * directly into this buffer avoids copying the data at all; call
+     * {@link #assemble(Callback)} after each read.
+     */
+    public ByteBuffer buffer() {
+        if (!buffer.hasRemaining())
+            compact(buffer.capacity() * 2);
+        return buffer;
+    }
+
+    public void consume(ByteBuffer chunk, Callback callback) {
+        while (chunk.hasRemaining()) {
+            ByteBuffer b = buffer();
+            int length = Math.min(b.remaining(), chunk.remaining());
+            ByteBuffer src = chunk.duplicate();
+            src.limit(src.position() + length);
+            b.put(src);
+            chunk.position(chunk.position() + length);
+            assemble(callback);
+        }
+    }
+
+    public void assemble(Callback callback) {
+        int garbled = 0;
+        for (;;) {
+            int end = buffer.position();
+            int frameStart = Framing.indexOfBeginString(buffer, start, end);
+            if (frameStart < 0) {
+                int discard = Math.max(0, end - start - (Framing.BEGIN_STRING.length - 1));
+                garbled += discard;
+                start += discard;
+                break;
+            }
+            garbled += frameStart - start;
+            start = frameStart;
+            int frameEnd = frameEnd(start, end);
+            if (frameEnd == NEED_MORE)
+                break;
+            if (frameEnd == GARBLED) {
+                garbled++;
+                start++;
+                continue;
+            }
+            if (garbled > 0) {
+                callback.garbled(garbled);
+                garbled = 0;
+            }
+            frame.clear();
+            frame.limit(frameEnd);
+            frame.position(start);
+            start = frameEnd;
+            callback.frame(frame);
+        }
+        if (garbled > 0)
+            callback.garbled(garbled);
+        compact(buffer.capacity());
+    }
+
+    private int frameEnd(int frameStart, int end) {
+        long frameEnd = Framing.frameEnd(buffer, frameStart, end);
+        if (frameEnd < 0)
+            return (int) frameEnd;
+        if (frameEnd - frameStart > maxFrameSize)
+            return GARBLED;
+        if (frameEnd > end) {
+            if (frameEnd - frameStart > buffer.capacity())
+                compact((int) (frameEnd - frameStart));
+            return NEED_MORE;
+        }
+        if (!Framing.hasTrailer(buffer, (int) frameEnd))
+            return GARBLED;
+        return (int) frameEnd;
+    }
+
+    private void compact(int capacity) {
+        int pending = buffer.position() - start;
+        if (capacity > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            buffer.position(start);
+            larger.put(buffer);
+            buffer = larger;
+            frame = buffer.duplicate();
+        } else if (start > 0) {
+            buffer.flip();
+            buffer.position(start);
+            buffer.compact();
+        }
+        start = 0;
+        buffer.position(pending);
+    }
+}
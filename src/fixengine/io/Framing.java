@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.io;
+
+import java.nio.ByteBuffer;
+
+import fixengine.messages.Field;
+
+/*
+ * Locates FIX frames in a buffer with the BeginString and BodyLength fields;
+ * shared by FrameAssembler and LogParser.
+ */
+final class Framing {
+    static final byte[] BEGIN_STRING = { '8', '=', 'F', 'I', 'X' };
+
+    static final int NEED_MORE = -1;
+    static final int GARBLED = -2;
+
+    private static final int MAX_BEGIN_STRING_LENGTH = 16;
+    private static final int MAX_BODY_LENGTH_DIGITS = 9;
+
+    /* Enough bytes for frameEnd() to decide: "8=...<SOH>9=nnnnnnnnn<SOH>" */
+    static final int MAX_HEADER_LENGTH = MAX_BEGIN_STRING_LENGTH + 3 + MAX_BODY_LENGTH_DIGITS + 1;
+
+    /* "10=nnn<SOH>" */
+    private static final int TRAILER_LENGTH = 7;
+
+    private Framing() {
+    }
+
+    static boolean isBeginString(ByteBuffer b, int position, int end) {
+        if (position + BEGIN_STRING.length > end)
+            return false;
+        for (int i = 0; i < BEGIN_STRING.length; i++) {
+            if (b.get(position + i) != BEGIN_STRING[i])
+                return false;
+        }
+        return true;
+    }
+
+    static int indexOfBeginString(ByteBuffer b, int from, int end) {
+        for (int i = from; i <= end - BEGIN_STRING.length; i++) {
+            if (isBeginString(b, i, end))
+                return i;
+        }
+        return -1;
+    }
+
+    /*
+     * Returns the end of the frame that starts at frameStart as announced by
+     * its BodyLength, which may lie beyond end, NEED_MORE if the bytes up to
+     * end do not contain BodyLength yet or GARBLED if the header is not
+     * "8=FIX...<SOH>9=<digits><SOH>". The trailer is not checked; see
+     * hasTrailer().
+     */
+    static long frameEnd(ByteBuffer b, int frameStart, int end) {
+        int i = frameStart + BEGIN_STRING.length;
+        for (;; i++) {
+            if (i == end)
+                return i - frameStart < MAX_BEGIN_STRING_LENGTH ? NEED_MORE : GARBLED;
+            if (b.get(i) == Field.DELIMITER)
+                break;
+            if (i - frameStart == MAX_BEGIN_STRING_LENGTH)
+                return GARBLED;
+        }
+        if (++i + 2 > end)
+            return NEED_MORE;
+        if (b.get(i++) != '9' || b.get(i++) != '=')
+            return GARBLED;
+        int bodyLength = 0;
+        int digits = 0;
+        for (;; i++, digits++) {
+            if (i == end)
+                return NEED_MORE;
+            int ch = b.get(i);
+            if (ch == Field.DELIMITER)
+                break;
+            if (ch < '0' || ch > '9' || digits == MAX_BODY_LENGTH_DIGITS)
+                return GARBLED;
+            bodyLength = bodyLength * 10 + (ch - '0');
+        }
+        if (digits == 0)
+            return GARBLED;
+        return (long) i + 1 + bodyLength + TRAILER_LENGTH;
+    }
+
+    /*
+     * Returns true if the frame that ends at frameEnd, which must not lie
+     * beyond the buffer's limit, ends with a "10=nnn<SOH>" trailer.
+     */
+    static boolean hasTrailer(ByteBuffer b, int frameEnd) {
+        int trailer = frameEnd - TRAILER_LENGTH;
+        return trailer >= 0 && b.get(trailer) == '1' && b.get(trailer + 1) == '0' && b.get(trailer + 2) == '='
+            && b.get(frameEnd - 1) == Field.DELIMITER;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import fixengine.messages.Message;
+import fixengine.messages.Parser;
+import fixengine.messages.SessionRejectReasonValue;
+
+/**
+ * Parses FIX log files in parallel. The file is memory-mapped and split into
+ * chunks at <code>8=FIX</code> frame boundaries; every chunk is parsed with
+ * {@link Parser} on the given executor, for example a fork-join pool.
+ * Anything between frames, such as line breaks, is skipped.
+ */
+public class LogParser {
+    public interface Callback {
+        /**
+         * Called for every valid message with the file offset of its first
+         * byte.
+         */
+        void message(long offset, Message m);
+
+        /**
+         * Called for every frame that starts with <code>8=FIX</code> but does
+         * not parse.
+         */
+        void invalidMessage(long offset, String text);
+    }
+
+    private static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+
+    public LogParser(ExecutorService executor) {
+        this(executor, DEFAULT_CHUNK_SIZE);
+    }
+
+    public LogParser(ExecutorService executor, int chunkSize) {
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    /**
+     * Parses the file and invokes the callback in file order from the
+     * calling thread.
+     */
+    public void parse(File file, Callback callback) throws IOException {
+        parse(file, callback, true);
+    }
+
+    /**
+     * Parses the file and invokes the callback from the executor's threads
+     * as soon as each message is parsed. Messages of one chunk are delivered
+     * in order but chunks are interleaved, so the callback has to be
+     * thread-safe and use the offsets to restore file order if it needs it.
+     */
+    public void parseUnordered(File file, Callback callback) throws IOException {
+        parse(file, callback, false);
+    }
+
+    private void parse(File file, Callback callback, boolean ordered) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        LinkedList<Future<Results>> pending = new LinkedList<Future<Results>>();
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            long start = 0;
+            while (start < length) {
+                long end = nextFrameStart(channel, start + chunkSize, length);
+                pending.add(executor.submit(new Chunk(channel, start, end, ordered ? null : callback)));
+                if (pending.size() == maxPendingChunks)
+                    await(pending.removeFirst(), callback);
+                start = end;
+            }
+            while (!pending.isEmpty())
+                await(pending.removeFirst(), callback);
+        } finally {
+            for (Future<Results> future : pending)
+                future.cancel(false);
+            raf.close();
+        }
+    }
+
+    private static void await(Future<Results> future, Callback callback) throws IOException {
+        try {
+            Results results = future.get();
+            if (results != null)
+                results.replay(callback);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause.toString());
+        }
+    }
+
+    /*
+     * Returns the offset of the first frame that starts in range
+     * [from, from + chunkSize) or the end of that range if there is none.
+     * A candidate counts only if its BodyLength lands on the trailer, so
+     * that "8=FIX" inside a field value does not split a frame.
+     */
+    private long nextFrameStart(FileChannel channel, long from, long length) throws IOException {
+        if (from >= length)
+            return length;
+        long end = Math.min(from + chunkSize, length);
+        long mapEnd = Math.min(end + Framing.BEGIN_STRING.length - 1, length);
+        ByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, from - 1, mapEnd - from + 1);
+        for (int i = 1; i <= end - from; i++) {
+            if (isFrameStart(b, i, b.limit()) && isFrame(channel, from + i - 1, length))
+                return from + i - 1;
+        }
+        return end;
+    }
+
+    private static boolean isFrame(FileChannel channel, long start, long length) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(Framing.MAX_HEADER_LENGTH, length - start));
+        long frameEnd = Framing.frameEnd(header, 0, header.limit());
+        if (frameEnd < 0 || frameEnd > length - start)
+            return false;
+        ByteBuffer frame = channel.map(FileChannel.MapMode.READ_ONLY, start, frameEnd);
+        return Framing.hasTrailer(frame, (int) frameEnd);
+    }
+
+    /*
+     * A frame starts at the beginning of the file or of a chunk, or right
+     * after the previous frame or a line break.
+     */
+    private static boolean isFrameStart(ByteBuffer b, int position, int limit) {
+        if (!Framing.isBeginString(b, position, limit))
+            return false;
+        if (position == 0)
+            return true;
+        int ch = b.get(position - 1);
+        return ch == '\001' || ch == '\n';
+    }
+
+    /*
+     * Returns the end of the frame that starts at the position or -1 if the
+     * frame is garbled or truncated.
+     */
+    private static int frameEnd(ByteBuffer b, int frameStart, int limit) {
+        long frameEnd = Framing.frameEnd(b, frameStart, limit);
+        if (frameEnd < 0 || frameEnd > limit)
+            return -1;
+        return (int) frameEnd;
+    }
+
+    private static class Chunk implements Callable<Results> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final Callback callback;
+
+        Chunk(FileChannel channel, long start, long end, Callback callback) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.callback = callback;
+        }
+
+        @Override public Results call() throws IOException {
+            Results results = callback == null ? new Results() : null;
+            Callback sink = callback == null ? results : callback;
+            ByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            int limit = b.limit();
+            for (int position = 0; position < limit; position++) {
+                if (!isFrameStart(b, position, limit))
+                    continue;
+                int frameEnd = frameEnd(b, position, limit);
+                if (frameEnd < 0) {
+                    sink.invalidMessage(start + position, "Garbled message");
+                    continue;
+                }
+                ByteBuffer frame = b.duplicate();
+                frame.limit(frameEnd);
+                frame.position(position);
+                try {
+                    Parser.parse(frame, new FrameCallback(start + position, sink));
+                } catch (RuntimeException e) {
+                    /* A frame the parser chokes on must not end the scan of the chunk. */
+                    sink.invalidMessage(start + position, e.toString());
+                }
+                position = frameEnd - 1;
+            }
+            return results;
+        }
+    }
+
+    private static class FrameCallback implements Parser.Callback {
+        private final long offset;
+        private final Callback sink;
+
+        FrameCallback(long offset, Callback sink) {
+            this.offset = offset;
+            this.sink = sink;
+        }
+
+        @Override public void message(Message m) {
+            sink.message(offset, m);
+        }
+
+        @Override public void invalidMessage(int msgSeqNum, SessionRejectReasonValue reason, String text) {
+            sink.invalidMessage(offset, text);
+        }
+
+        @Override public void unsupportedMsgType(String msgType, int msgSeqNum) {
+            sink.invalidMessage(offset, "MsgType(35): Unsupported MsgType: " + msgType);
+        }
+
+        @Override public void invalidMsgType(String msgType, int msgSeqNum) {
+            sink.invalidMessage(offset, "MsgType(35): Invalid MsgType: " + msgType);
+        }
+
+        @Override public void garbledMessage(String text) {
+            sink.invalidMessage(offset, text);
+        }
+    }
+
+    /* Results of one chunk, kept until the chunks before it are delivered. */
+    private static class Results implements Callback {
+        private final List<Long> offsets = new ArrayList<Long>();
+        private final List<Object> values = new ArrayList<Object>();
+
+        @Override public void message(long offset, Message m) {
+            offsets.add(offset);
+            values.add(m);
+        }
+
+        @Override public void invalidMessage(long offset, String text) {
+            offsets.add(offset);
+            values.add(text);
+        }
+
+        void replay(Callback callback) {
+            for (int i = 0; i < values.size(); i++) {
+                Object value = values.get(i);
+                if (value instanceof Message)
+                    callback.message(offsets.get(i), (Message) value);
+                else
+                    callback.invalidMessage(offsets.get(i), (String) value);
+            }
+        }
+    }
+}
@@ -17,16 +17,17 @@ package fixengine.messages;
 
 import java.nio.ByteBuffer;
 
+import lang.ByteBuffers;
 import lang.Objects;
 
 /**
  * @author Pekka Enberg 
  */
-public abstract class AbstractField<T> implements Field {
+public abstract class AbstractField<T> implements Field, Cloneable {
     protected boolean validFormat = true;
-    private boolean validValue = true;
+    protected boolean validValue = true;
     private Required required;
-    private final String name;
+    private transient String name;
     private boolean defined;
     private final Tag<?> tag;
     protected T value;
@@ -35,7 +36,18 @@ public abstract class AbstractField<T> implements Field {
         this.required = required;
         this.value = value;
         this.tag = tag;
-        this.name = parseFieldName();
+    }
+
+    /**
+     * Returns a copy of this field. {@link Tag#newField(Required)} copies a
+     * pristine prototype instead of constructing fields reflectively.
+     */
+    @SuppressWarnings("unchecked") protected AbstractField<T> copy() {
+        try {
+            return (AbstractField<T>) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
     }
     
     private String parseFieldName() {
@@ -61,7 +73,20 @@ public abstract class AbstractField<T> implements Field {
         return value;
     }
 
+    /**
+     * Clears the value and parse state so that the field can be reused for
+     * another message.
+     */
+    @Override public void reset() {
+        setValue(null);
+        defined = false;
+        validFormat = true;
+        validValue = true;
+    }
+
     public String name() {
+        if (name == null)
+            name = parseFieldName();
         return name;
     }
 
@@ -104,22 +129,49 @@ public abstract class AbstractField<T> implements Field {
     @Override public void parse(ByteBuffer b) {
         if (isParsed())
             throw new TagMultipleTimesException(prettyName() + ": Tag multiple times");
-        String value = parseValue(b, this);
-        if (!value.isEmpty())
-            parseValue(value);
-        else
-            parseValue(null);
+        int start = b.position();
+        int end = skipValue(b);
+        if (end < 0)
+            throw new InvalidBodyLengthException();
+        parseValue(b, start, end);
     }
 
-    private static String parseValue(ByteBuffer b, Field field) {
-        StringBuilder result = new StringBuilder();
-        for (;;) {
-            int ch = b.get();
-            if (ch == Field.DELIMITER)
-                break;
-            result.append((char) ch);
+    @Override public boolean parse(ByteBuffer b, ParseError error) {
+        if (isParsed())
+            return error.set(ParseError.Problem.TAG_MULTIPLE_TIMES, this, tag.value());
+        int start = b.position();
+        int end = skipValue(b);
+        if (end < 0)
+            return error.set(ParseError.Problem.INVALID_BODY_LENGTH);
+        parseValue(b, start, end);
+        return true;
+    }
+
+    /**
+     * Advances the buffer's position past the delimiter of the value that
+     * starts at the position and returns the index of the delimiter. Returns
+     * -1 and leaves the position alone if the value is not terminated before
+     * the limit, which means BodyLength does not end at a field boundary.
+     */
+    static int skipValue(ByteBuffer b) {
+        int end = ByteBuffers.indexOf(b, b.position(), b.limit(), (byte) DELIMITER);
+        if (end >= 0)
+            b.position(end + 1);
+        return end;
+    }
+
+    public void parseValue(ByteBuffer b, int start, int end) {
+        defined = true;
+        if (start == end) {
+            return;
+        }
+        try {
+            parse(b, start, end);
+        } catch (InvalidValueForTagException e) {
+            validValue = false;
+        } catch (InvalidValueFormatException e) {
+            validFormat = false;
         }
-        return result.toString();
     }
 
     public void parseValue(String value) {
@@ -136,6 +188,19 @@ public abstract class AbstractField<T> implements Field {
         }
     }
 
+    /**
+     * Parses the value from the bytes in range [start, end) of the buffer.
+     * The default implementation decodes the bytes as an ASCII string and
+     * delegates to {@link #parse(String)}; numeric fields override this to
+     * parse straight from the buffer.
+     */
+    protected void parse(ByteBuffer b, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = (char) (b.get(start + i) & 0xff);
+        parse(new String(chars));
+    }
+
     public abstract void parse(String value);
     
     public String format() {
@@ -151,8 +216,37 @@ public abstract class AbstractField<T> implements Field {
         return tag + "=" + value + DELIMITER;
     }
 
+    public void encode(ByteBuffer b) {
+        if (!hasValue()) {
+            if (isOptional())
+                return;
+            b.put(tag.prefix());
+        } else {
+            b.put(tag.prefix());
+            encodeValue(b);
+        }
+        b.put((byte) DELIMITER);
+    }
+
+    /**
+     * Writes the value at the buffer's position. The default implementation
+     * writes the characters of {@link #value()}; fields override this to
+     * write their value without creating a <code>String</code>.
+     */
+    protected void encodeValue(ByteBuffer b) {
+        String value = value();
+        if (value == null)
+            return;
+        for (int i = 0; i < value.length(); i++)
+            b.put((byte) value.charAt(i));
+    }
+
     private boolean isOptional() {
-        return !required.isRequired();
+        return !isRequired();
+    }
+
+    boolean isRequired() {
+        return required.isRequired();
     }
 
     protected abstract String value();
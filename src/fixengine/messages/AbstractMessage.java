@@ -17,7 +17,7 @@ package fixengine.messages;
 
 import java.nio.ByteBuffer;
 
-import lang.Objects;
+import lang.Timestamps;
 
 import org.joda.time.DateTime;
 
@@ -41,6 +41,9 @@ import fixengine.tags.TargetCompID;
  */
 public abstract class AbstractMessage extends FieldContainer implements Message {
     private final MessageHeader header;
+    boolean released;
+    private boolean capturesUnknownFields;
+    private UnknownFields unknownFields;
 
     protected AbstractMessage(MsgTypeValue msgType) {
         this(new MessageHeader(msgType));
@@ -52,6 +55,37 @@ public abstract class AbstractMessage extends FieldContainer implements Message
 
     public abstract void apply(MessageVisitor visitor);
 
+    MessageHeader header() {
+        return header;
+    }
+
+    @Override public void reset() {
+        header.reset();
+        super.reset();
+        capturesUnknownFields = false;
+        if (unknownFields != null)
+            unknownFields.clear();
+    }
+
+    /*
+     * Makes the next parse capture user-defined and undefined tags instead
+     * of rejecting them. Reset turns capturing off again.
+     */
+    void captureUnknownFields() {
+        capturesUnknownFields = true;
+    }
+
+    /**
+     * Returns the user-defined tags and tags not defined for this message
+     * type that were captured during parsing, or <code>null</code> if there
+     * were none. See {@link Parser#parseCapturingUnknownFields(ByteBuffer, MessagePool, Parser.Callback)}.
+     */
+    public UnknownFields getUnknownFields() {
+        if (unknownFields == null || unknownFields.isEmpty())
+            return null;
+        return unknownFields;
+    }
+
     public void setHeaderConfig(Config config) {
         setBeginString(config.getVersion().value());
         setSenderCompId(config.getSenderCompId());
@@ -99,13 +133,21 @@ public abstract class AbstractMessage extends FieldContainer implements Message
     }
 
     public int getMsgSeqNum() {
-        return header.getInteger(MsgSeqNum.TAG);
+        return header.getInt(MsgSeqNum.TAG);
     }
 
     public void setSendingTime(DateTime sendingTime) {
         header.setDateTime(SendingTime.TAG, sendingTime);
     }
 
+    /**
+     * Sets SendingTime from microseconds since the epoch with whole second
+     * precision, like {@link #setSendingTime(DateTime)}.
+     */
+    public void setSendingTime(long micros) {
+        header.setEpochMicros(SendingTime.TAG, micros, Timestamps.SECONDS);
+    }
+
     public DateTime getSendingTime() {
         return header.getDateTime(SendingTime.TAG);
     }
@@ -162,27 +204,43 @@ public abstract class AbstractMessage extends FieldContainer implements Message
         return header.hasAccurateSendingTime(currentTime);
     }
 
+    @Override
+    public boolean hasAccurateSendingTime(long currentTimeMicros) {
+        return header.hasAccurateSendingTime(currentTimeMicros);
+    }
+
     @Override
     public boolean hasOrigSendTimeAfterSendingTime() {
         return header.hasOrigSendTimeAfterSendingTime();
     }
 
-    public void parse(ByteBuffer b) {
-        super.parse(b);
-        finishParse(b);
+    @Override boolean parse(ByteBuffer b, boolean lazy, ParseError error) {
+        return super.parse(b, lazy, error) && finishParse(b, lazy, error);
     }
 
-    private void finishParse(ByteBuffer b) {
-        if (b.hasRemaining()) {
-            int tag = Tag.parseTag(b);
+    private boolean finishParse(ByteBuffer b, boolean lazy, ParseError error) {
+        while (b.hasRemaining()) {
+            int tag = Tag.parseTagNumber(b, error);
+            if (tag < 0)
+                return false;
+            if (!capturesUnknownFields && Tag.isUserDefined(tag))
+                return error.set(ParseError.Problem.INVALID_TAG_NUMBER, tag);
             Field field = header.lookup(tag);
             if (CheckSum.TAG.value() == tag) {
-                throw new OutOfOrderTagException("CheckSum(10): Out of order tag");
+                return error.set(ParseError.Problem.OUT_OF_ORDER_TAG, CheckSum.TAG);
             } else if (field != null) {
-                throw new OutOfOrderTagException(field.prettyName() + ": Out of order tag");
+                return error.set(ParseError.Problem.OUT_OF_ORDER_TAG, field, tag);
+            } else if (!capturesUnknownFields) {
+                return error.set(ParseError.Problem.INVALID_TAG, tag);
             }
-            throw new InvalidTagException("Tag not defined for this message: " + tag);
+            if (unknownFields == null)
+                unknownFields = new UnknownFields();
+            if (!unknownFields.add(tag, b))
+                return error.set(ParseError.Problem.INVALID_BODY_LENGTH);
+            if (!super.parse(b, lazy, error))
+                return false;
         }
+        return true;
     }
 
     public String format() {
@@ -190,20 +248,71 @@ public abstract class AbstractMessage extends FieldContainer implements Message
         buffer.append(new StringField(MsgType.TAG, header.getMsgType()));
         buffer.append(header.format());
         buffer.append(super.format());
+        if (getUnknownFields() != null)
+            buffer.append(unknownFields.format());
         buffer.prefix(new IntegerField(BodyLength.TAG, buffer.length()));
         buffer.prefix(new StringField(BeginString.TAG, header.getBeginString()));
         buffer.append(new StringField(CheckSum.TAG, CheckSum.format(buffer.checksum())));
         return buffer.toString();
     }
 
+    /*
+     * Writes MsgType, the rest of the standard header and the body, which is
+     * the part of the frame that BodyLength counts. If a pre-encoded header
+     * is given, its SenderCompID and TargetCompID bytes are spliced in after
+     * MsgType and the position where they start is returned; otherwise
+     * returns -1. See MessageEncoder.
+     */
+    int encodeBody(ByteBuffer b, PreEncodedHeader preEncoded) {
+        b.put(MsgType.TAG.prefix());
+        String msgType = header.getMsgType();
+        for (int i = 0; i < msgType.length(); i++)
+            b.put((byte) msgType.charAt(i));
+        b.put((byte) Field.DELIMITER);
+        int splice = -1;
+        if (preEncoded != null) {
+            splice = b.position();
+            b.put(preEncoded.compIds());
+            header.encodeAfterCompIds(b);
+        } else {
+            header.encode(b);
+        }
+        encode(b);
+        if (getUnknownFields() != null)
+            unknownFields.encode(b);
+        return splice;
+    }
+
+    /**
+     * Messages are equal if they are of the same type and their header and
+     * body fields and captured unknown fields have the same values, whether
+     * the values were parsed or set. BodyLength is not compared.
+     */
     @Override
     public boolean equals(Object obj) {
-        return Objects.equal(this, obj);
+        if (this == obj)
+            return true;
+        if (obj == null || obj.getClass() != getClass())
+            return false;
+        AbstractMessage other = (AbstractMessage) obj;
+        return equal(getMsgType(), other.getMsgType())
+            && equal(getBeginString(), other.getBeginString())
+            && header.hasSameValues(other.header)
+            && hasSameValues(other)
+            && equal(formatUnknownFields(), other.formatUnknownFields());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(this);
+        return 31 * header.valuesHashCode() + valuesHashCode();
+    }
+
+    private String formatUnknownFields() {
+        return getUnknownFields() != null ? unknownFields.format() : null;
+    }
+
+    private static boolean equal(Object value, Object other) {
+        return value == null ? other == null : value.equals(other);
     }
 
     @Override
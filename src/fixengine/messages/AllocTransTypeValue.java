@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 public enum AllocTransTypeValue implements Formattable {
     NEW('0'),
     REPLACE('1'),
@@ -23,21 +25,27 @@ public enum AllocTransTypeValue implements Formattable {
     CALCULATED('4'),                     /* (includes MiscFees and NetMoney) */
     CALCULATED_WITHOUT_PRELIMINARY('5'); /* Calculated without Preliminary (sent unsolicited by broker, includes MiscFees and NetMoney) */
 
-    private char value;
+    private static final ValueTable<AllocTransTypeValue> VALUES = new ValueTable<AllocTransTypeValue>(values());
+
+    private final String value;
     
     AllocTransTypeValue(char value) {
-        this.value = value;
+        this.value = Character.toString(value);
     }
 
     @Override public String value() {
-        return Character.toString(value);
+        return value;
     }
 
     public static AllocTransTypeValue parse(char value) {
-        for (AllocTransTypeValue type : AllocTransTypeValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Character.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static AllocTransTypeValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
\ No newline at end of file
@@ -21,12 +21,16 @@ import fixengine.tags.AllocShares;
 import fixengine.tags.AllocTransType;
 import fixengine.tags.AvgPx;
 import fixengine.tags.ClOrdID;
+import fixengine.tags.ListID;
 import fixengine.tags.NoAllocs;
 import fixengine.tags.NoOrders;
+import fixengine.tags.OrderID;
+import fixengine.tags.SecondaryOrderID;
 import fixengine.tags.Shares;
 import fixengine.tags.Side;
 import fixengine.tags.Symbol;
 import fixengine.tags.TradeDate;
+import fixengine.tags.WaveNo;
 
 public class AllocationMessage extends AbstractMessage {
     protected AllocationMessage(MessageHeader header) {
@@ -34,8 +38,18 @@ public class AllocationMessage extends AbstractMessage {
 
         field(AllocID.TAG);
         field(AllocTransType.TAG);
-        field(NoOrders.TAG);          // TODO: repeating group
-        field(ClOrdID.TAG);
+        group(new RepeatingGroup(NoOrders.TAG, Required.YES) {
+            @Override public RepeatingGroupInstance newInstance() {
+                return new RepeatingGroupInstance(ClOrdID.TAG) {
+                    {
+                        field(OrderID.TAG, Required.NO);
+                        field(SecondaryOrderID.TAG, Required.NO);
+                        field(ListID.TAG, Required.NO);
+                        field(WaveNo.TAG, Required.NO);
+                    }
+                };
+            }
+        });
         field(Side.TAG);
         field(Symbol.TAG);
         field(Shares.TAG);
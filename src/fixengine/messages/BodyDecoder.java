@@ -0,0 +1,324 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import lang.ByteBuffers;
+import lang.Decimals;
+import lang.Integers;
+import lang.Timestamps;
+
+/**
+ * Base class for decoders generated from a FIX dictionary. A decoder maps
+ * each tag of its message type to a fixed slot and records where the value
+ * of each slot is in the buffer; the generated accessors decode values on
+ * demand. {@link #wrap(ByteBuffer, int, int)} checks the format of every
+ * value against its dictionary type and reports errors through
+ * {@link #getRejectReason()} and {@link #getRejectTag()} without allocating
+ * or throwing, so the accessors of an accepted body do not fail. The one
+ * exception is {@link #getDecimal(int, int)}, which throws if the value
+ * does not fit the requested scale.
+ *
+ * An absent optional field has no string value and is false as a boolean;
+ * the other accessors throw {@link IllegalStateException} for it, so the
+ * generated <code>has</code> methods should be checked first.
+ *
+ * A repeating group is decoded by a decoder of its own, generated for the
+ * group, that is wrapped around one instance of the group at a time.
+ */
+public abstract class BodyDecoder {
+    /* Value types of slots, which wrap() checks the format of. */
+    protected static final byte STRING = 0;
+    protected static final byte INT = 1;
+    protected static final byte DECIMAL = 2;
+    protected static final byte CHAR = 3;
+    protected static final byte BOOLEAN = 4;
+    protected static final byte TIMESTAMP = 5;
+
+    /**
+     * Returned by {@link #slot(int)} for tags of the standard header or
+     * trailer, which are out of order in the body.
+     */
+    protected static final int HEADER_TAG = -2;
+
+    /**
+     * Returned by {@link #slot(int)} for tags of a repeating group, which are
+     * out of order outside of the group.
+     */
+    protected static final int GROUP_MEMBER = -3;
+
+    private final byte[] types;
+    private final int[] tags;
+    private final int[] offsets;
+    private final int[] lengths;
+    private ByteBuffer buffer;
+    private SessionRejectReasonValue rejectReason;
+    private int rejectTag;
+
+    /*
+     * Where the instances of the group start, when this decoder decodes a
+     * repeating group, and where the group ends.
+     */
+    private int[] starts = new int[0];
+    private int count;
+    private int end;
+
+    protected BodyDecoder(byte[] types, int[] tags) {
+        this.types = types;
+        this.tags = tags;
+        this.offsets = new int[types.length];
+        this.lengths = new int[types.length];
+    }
+
+    /**
+     * Returns the slot of the tag, {@link #HEADER_TAG}, {@link #GROUP_MEMBER}
+     * or -1 for tags not defined for this message type.
+     */
+    protected abstract int slot(int tag);
+
+    /**
+     * Checks required fields after decoding; see {@link #missing(int)}.
+     */
+    protected abstract boolean validate();
+
+    /**
+     * Returns the decoder of the repeating group whose NumInGroup field is
+     * in the slot, or <code>null</code> if the slot is not a repeating group.
+     */
+    protected BodyDecoder group(int slot) {
+        return null;
+    }
+
+    /**
+     * Decodes the body fields in range [offset, limit) of the buffer, for
+     * example starting at {@link PreParsedHeader#getBodyOffset()}. Decoding
+     * stops at the CheckSum field. Returns <code>false</code> if the body is
+     * invalid.
+     */
+    public boolean wrap(ByteBuffer b, int offset, int limit) {
+        return decode(b, offset, limit, false) >= 0 && validate();
+    }
+
+    /*
+     * Records the fields in range [offset, limit) and returns the position
+     * where decoding stopped, or -1 if the fields are rejected. An instance
+     * of a repeating group ends at the first tag that does not belong to it
+     * or that it already has, which starts the next instance.
+     */
+    private int decode(ByteBuffer b, int offset, int limit, boolean instance) {
+        buffer = b;
+        rejectReason = null;
+        rejectTag = 0;
+        for (int i = 0; i < offsets.length; i++)
+            offsets[i] = -1;
+        int position = offset;
+        while (position < limit) {
+            int fieldStart = position;
+            int tag = 0;
+            int digits = 0;
+            int ch;
+            while (position < limit && (ch = b.get(position)) != '=') {
+                if (ch < '0' || ch > '9' || digits == 9)
+                    return fail(SessionRejectReasonValue.INVALID_TAG_NUMBER, tag);
+                tag = tag * 10 + (ch - '0');
+                digits++;
+                position++;
+            }
+            if (digits == 0 || position == limit)
+                return fail(SessionRejectReasonValue.INVALID_TAG_NUMBER, tag);
+            int start = ++position;
+            position = ByteBuffers.indexOf(b, start, limit, (byte) Field.DELIMITER);
+            if (position < 0)
+                return fail(SessionRejectReasonValue.INVALID_VALUE_FORMAT, tag);
+            int length = position++ - start;
+            if (!instance && tag == 10)
+                break;
+            int slot = slot(tag);
+            if (instance) {
+                if (slot < 0 || offsets[slot] >= 0)
+                    return fieldStart;
+                if (fieldStart == offset && slot != 0)
+                    return fail(SessionRejectReasonValue.OUT_OF_ORDER_GROUP_FIELD, tag);
+            }
+            if (slot == HEADER_TAG)
+                return fail(SessionRejectReasonValue.OUT_OF_ORDER_TAG, tag);
+            if (slot == GROUP_MEMBER)
+                return fail(SessionRejectReasonValue.OUT_OF_ORDER_GROUP_FIELD, tag);
+            if (slot < 0)
+                return fail(SessionRejectReasonValue.INVALID_TAG, tag);
+            if (offsets[slot] >= 0)
+                return fail(SessionRejectReasonValue.TAG_MULTIPLE_TIMES, tag);
+            if (length == 0)
+                return fail(SessionRejectReasonValue.EMPTY_TAG, tag);
+            if (!isValid(types[slot], b, start, start + length))
+                return fail(SessionRejectReasonValue.INVALID_VALUE_FORMAT, tag);
+            offsets[slot] = start;
+            lengths[slot] = length;
+            BodyDecoder group = group(slot);
+            if (group != null) {
+                position = group.decodeGroup(b, position, limit, tag, getInt(slot));
+                if (position < 0)
+                    return fail(group.rejectReason, group.rejectTag);
+            }
+        }
+        return position;
+    }
+
+    /*
+     * Decodes the instances of the group that starts at offset, recording
+     * where each of them starts, and returns the position after the group
+     * or -1 if the group is rejected.
+     */
+    private int decodeGroup(ByteBuffer b, int offset, int limit, int countTag, int expected) {
+        count = 0;
+        int position = offset;
+        for (;;) {
+            int next = decode(b, position, limit, true);
+            if (next < 0 || next > position && !validate())
+                return -1;
+            if (next == position)
+                break;
+            if (count == starts.length)
+                starts = Arrays.copyOf(starts, Math.max(4, count * 2));
+            starts[count++] = position;
+            position = next;
+        }
+        end = position;
+        if (count != expected)
+            return fail(SessionRejectReasonValue.NUM_IN_GROUP_MISMATCH, countTag);
+        return position;
+    }
+
+    private static boolean isValid(byte type, ByteBuffer b, int start, int end) {
+        switch (type) {
+        case INT:
+            return Integers.tryParseInt(b, start, end) != Integers.INVALID;
+        case DECIMAL:
+            return Decimals.parse(b, start, end, 0) != Decimals.INVALID;
+        case CHAR:
+            return end - start == 1;
+        case BOOLEAN:
+            return end - start == 1 && (b.get(start) == 'Y' || b.get(start) == 'N');
+        case TIMESTAMP:
+            return Timestamps.parse(b, start, end) != Timestamps.INVALID;
+        default:
+            return true;
+        }
+    }
+
+    protected final boolean missing(int tag) {
+        return reject(SessionRejectReasonValue.TAG_MISSING, tag);
+    }
+
+    private boolean reject(SessionRejectReasonValue reason, int tag) {
+        rejectReason = reason;
+        rejectTag = tag;
+        return false;
+    }
+
+    private int fail(SessionRejectReasonValue reason, int tag) {
+        reject(reason, tag);
+        return -1;
+    }
+
+    public SessionRejectReasonValue getRejectReason() {
+        return rejectReason;
+    }
+
+    public int getRejectTag() {
+        return rejectTag;
+    }
+
+    protected final boolean has(int slot) {
+        return offsets[slot] >= 0;
+    }
+
+    /**
+     * Wraps <code>group</code>, the decoder of the repeating group in the
+     * slot, around the instance at <code>index</code> and returns it.
+     */
+    protected final <T extends BodyDecoder> T instance(int slot, T group, int index) {
+        BodyDecoder decoder = group;
+        int size = has(slot) ? decoder.count : 0;
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        decoder.decode(buffer, decoder.starts[index], decoder.end, true);
+        return group;
+    }
+
+    protected final int getInt(int slot) {
+        int offset = offset(slot);
+        return (int) Integers.tryParseInt(buffer, offset, offset + lengths[slot]);
+    }
+
+    protected final char getChar(int slot) {
+        return (char) (buffer.get(offset(slot)) & 0xff);
+    }
+
+    protected final boolean getBoolean(int slot) {
+        return has(slot) && buffer.get(offsets[slot]) == 'Y';
+    }
+
+    /**
+     * Returns the decimal value scaled to <code>scale</code> fraction digits,
+     * for example a price in ticks. Extra fraction digits are truncated.
+     * Throws {@link ArithmeticException} if the scaled value does not fit in
+     * a <code>long</code>.
+     */
+    protected final long getDecimal(int slot, int scale) {
+        int offset = offset(slot);
+        long result = Decimals.parse(buffer, offset, offset + lengths[slot], scale);
+        if (result == Decimals.INVALID)
+            throw new ArithmeticException("Value out of range for scale " + scale);
+        return result;
+    }
+
+    protected final double getDouble(int slot) {
+        int offset = offset(slot);
+        return Decimals.parseDouble(buffer, offset, offset + lengths[slot]);
+    }
+
+    protected final long getTimestamp(int slot) {
+        int offset = offset(slot);
+        return Timestamps.parse(buffer, offset, offset + lengths[slot]);
+    }
+
+    protected final String getString(int slot) {
+        if (!has(slot))
+            return null;
+        char[] chars = new char[lengths[slot]];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = (char) (buffer.get(offsets[slot] + i) & 0xff);
+        return new String(chars);
+    }
+
+    protected final int getBytes(int slot, byte[] dst, int offset) {
+        int start = offset(slot);
+        int length = lengths[slot];
+        for (int i = 0; i < length; i++)
+            dst[offset + i] = buffer.get(start + i);
+        return length;
+    }
+
+    private int offset(int slot) {
+        int offset = offsets[slot];
+        if (offset < 0)
+            throw new IllegalStateException(tags[slot] + ": Tag missing");
+        return offset;
+    }
+}
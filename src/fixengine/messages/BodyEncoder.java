@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import lang.Decimals;
+import lang.Integers;
+import lang.Timestamps;
+
+/**
+ * Base class for encoders generated from a FIX dictionary. Generated
+ * encoders keep field values in primitive fields and write the body in
+ * declaration order with the helpers of this class; the tag prefixes
+ * (<code>"55="</code>) are encoded once per class with {@link #tag(int)}.
+ */
+public abstract class BodyEncoder {
+    private static final byte DELIMITER = (byte) Field.DELIMITER;
+
+    /**
+     * Writes the body fields at the buffer's position. Throws
+     * {@link IllegalStateException} if a required field is not set.
+     */
+    public abstract void encodeBody(ByteBuffer b);
+
+    /**
+     * Clears all field values so that the encoder can be reused.
+     */
+    public abstract void reset();
+
+    protected static byte[] tag(int tag) {
+        String prefix = tag + "=";
+        byte[] result = new byte[prefix.length()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = (byte) prefix.charAt(i);
+        return result;
+    }
+
+    protected static void missing(String field) {
+        throw new IllegalStateException(field + ": Tag missing");
+    }
+
+    protected static void putString(ByteBuffer b, byte[] tag, CharSequence value) {
+        b.put(tag);
+        for (int i = 0; i < value.length(); i++)
+            b.put((byte) value.charAt(i));
+        b.put(DELIMITER);
+    }
+
+    protected static void putInt(ByteBuffer b, byte[] tag, long value) {
+        b.put(tag);
+        Integers.put(b, value);
+        b.put(DELIMITER);
+    }
+
+    protected static void putChar(ByteBuffer b, byte[] tag, char value) {
+        b.put(tag);
+        b.put((byte) value);
+        b.put(DELIMITER);
+    }
+
+    protected static void putBoolean(ByteBuffer b, byte[] tag, boolean value) {
+        putChar(b, tag, value ? 'Y' : 'N');
+    }
+
+    protected static void putDecimal(ByteBuffer b, byte[] tag, long mantissa, int scale) {
+        b.put(tag);
+        Decimals.put(b, mantissa, scale, 0);
+        b.put(DELIMITER);
+    }
+
+    protected static void putTimestamp(ByteBuffer b, byte[] tag, long micros, int precision) {
+        b.put(tag);
+        Timestamps.put(b, micros, precision);
+        b.put(DELIMITER);
+    }
+
+    protected static void putGroup(ByteBuffer b, byte[] tag, List<? extends BodyEncoder> instances, int count) {
+        putInt(b, tag, count);
+        for (int i = 0; i < count; i++)
+            instances.get(i).encodeBody(b);
+    }
+}
@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -49,6 +51,11 @@ public class BooleanField extends AbstractField<Boolean> {
         return "N";
     }
 
+    @Override
+    protected void encodeValue(ByteBuffer b) {
+        b.put((byte) (Boolean.TRUE.equals(booleanValue()) ? 'Y' : 'N'));
+    }
+
     protected Boolean booleanValue() {
         return value;
     }
@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -43,21 +45,27 @@ public enum BusinessRejectReasonValue implements Formattable {
     /** DeliverTo firm not available at this time.  */
     DELIVER_TO_FIRM_NOT_AVAILABLE(7);
 
-    private final int value;
+    private static final ValueTable<BusinessRejectReasonValue> VALUES = new ValueTable<BusinessRejectReasonValue>(values());
+
+    private final String value;
 
     BusinessRejectReasonValue(int value) {
-        this.value = value;
+        this.value = Integer.toString(value);
     }
 
     @Override public String value() {
-        return Integer.toString(value);
+        return value;
     }
 
     public static BusinessRejectReasonValue parse(int value) {
-        for (BusinessRejectReasonValue type : BusinessRejectReasonValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Integer.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static BusinessRejectReasonValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
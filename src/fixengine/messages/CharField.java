@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -41,6 +43,11 @@ public class CharField extends AbstractField<Character> {
         return Character.toString(charValue());
     }
 
+    @Override
+    protected void encodeValue(ByteBuffer b) {
+        b.put((byte) charValue().charValue());
+    }
+
     protected Character charValue() {
         return value;
     }
@@ -18,12 +18,45 @@ package fixengine.messages;
 import java.nio.ByteBuffer;
 
 public class Checksums {
+    private static final long LOW_BYTES = 0x00FF00FF00FF00FFL;
+    private static final long LANES = 0x0001000100010001L;
+
+    /*
+     * Number of 8-byte words whose pairwise byte sums can be accumulated in
+     * 16-bit lanes before the lanes must be folded: 32 * 510 * 4 < 2^16.
+     */
+    private static final int WORDS_PER_BLOCK = 32;
+
     public static int checksum(ByteBuffer b, int end) {
-        int checksum = 0;
-        for (int i = 0; i < end; i++) {
-            checksum += b.get(i);
+        return checksum(b, 0, end);
+    }
+
+    public static int checksum(ByteBuffer b, int start, int end) {
+        return sum(b, start, end, 0) % 256;
+    }
+
+    /**
+     * Returns <code>seed</code> plus the sum of the unsigned bytes in range
+     * [start, end) of the buffer. The checksum of a message written in
+     * several segments is the running sum folded over all segments modulo
+     * 256.
+     */
+    public static int sum(ByteBuffer b, int start, int end, int seed) {
+        int sum = seed;
+        int i = start;
+        while (end - i >= 8) {
+            int words = Math.min((end - i) / 8, WORDS_PER_BLOCK);
+            long lanes = 0;
+            for (int n = 0; n < words; n++, i += 8) {
+                long word = b.getLong(i);
+                lanes += (word & LOW_BYTES) + ((word >>> 8) & LOW_BYTES);
+            }
+            sum += (int) ((lanes * LANES) >>> 48);
         }
-        return checksum % 256;
+        for (; i < end; i++) {
+            sum += b.get(i) & 0xff;
+        }
+        return sum;
     }
 
     public static int checksum(StringBuilder buffer) {
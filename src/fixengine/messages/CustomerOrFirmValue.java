@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -22,21 +24,27 @@ public enum CustomerOrFirmValue implements Formattable {
     CUSTOMER(0),
     FIRM(1);
 
-    private int value;
+    private static final ValueTable<CustomerOrFirmValue> VALUES = new ValueTable<CustomerOrFirmValue>(values());
+
+    private final String value;
     
     CustomerOrFirmValue(int value) {
-        this.value = value;
+        this.value = Integer.toString(value);
     }
 
     @Override public String value() {
-        return Integer.toString(value);
+        return value;
     }
 
     public static CustomerOrFirmValue parse(int value) {
-        for (CustomerOrFirmValue type : CustomerOrFirmValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Integer.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static CustomerOrFirmValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -40,21 +42,27 @@ public enum CxlRejReasonValue implements Formattable {
     /** Duplicate ClOrdID received.  */
     DUPLICATE_CL_ORD_ID(6);       
 
-    private int value;
+    private static final ValueTable<CxlRejReasonValue> VALUES = new ValueTable<CxlRejReasonValue>(values());
+
+    private final String value;
     
     CxlRejReasonValue(int value) {
-        this.value = value;
+        this.value = Integer.toString(value);
     }
 
     @Override public String value() {
-        return Integer.toString(value);
+        return value;
     }
 
     public static CxlRejReasonValue parse(int value) {
-        for (CxlRejReasonValue type : CxlRejReasonValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Integer.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static CxlRejReasonValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
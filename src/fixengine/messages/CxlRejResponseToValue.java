@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -22,21 +24,27 @@ public enum CxlRejResponseToValue implements Formattable {
     ORDER_CANCEL_REQUEST('1'),
     ORDER_MODIFICATION_REQUEST('2');
 
-    private char value;
+    private static final ValueTable<CxlRejResponseToValue> VALUES = new ValueTable<CxlRejResponseToValue>(values());
+
+    private final String value;
     
     CxlRejResponseToValue(char value) {
-        this.value = value;
+        this.value = Character.toString(value);
     }
 
     @Override public String value() {
-        return Character.toString(value);
+        return value;
     }
 
     public static CxlRejResponseToValue parse(char value) {
-        for (CxlRejResponseToValue type : CxlRejResponseToValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Character.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static CxlRejResponseToValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
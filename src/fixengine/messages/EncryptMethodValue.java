@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -40,21 +42,27 @@ public enum EncryptMethodValue implements Formattable {
     /** PEM/DES-MD5 */
     PEM_DES_MD5(6);
 
-    private final int value;
+    private static final ValueTable<EncryptMethodValue> VALUES = new ValueTable<EncryptMethodValue>(values());
+
+    private final String value;
 
     EncryptMethodValue(int value) {
-        this.value = value;
+        this.value = Integer.toString(value);
     }
 
     @Override public String value() {
-        return Integer.toString(value);
+        return value;
     }
 
     public static EncryptMethodValue parse(int value) {
-        for (EncryptMethodValue type : EncryptMethodValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Integer.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static EncryptMethodValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -27,10 +29,24 @@ public abstract class EnumField<T extends Formattable> extends AbstractField<T>
         this.value = value;
     }
 
+    /**
+     * Sets a value looked up while parsing; <code>null</code> means the
+     * encoded value is not defined for the tag.
+     */
+    protected void setParsedValue(T value) {
+        this.value = value;
+        if (value == null)
+            validValue = false;
+    }
+
     @Override protected String value() {
         if (value == null) {
             return null;
         }
         return value.value();
     }
+
+    @Override protected void encodeValue(ByteBuffer b) {
+        b.put(value.bytes());
+    }
 }
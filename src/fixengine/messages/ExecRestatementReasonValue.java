@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -29,21 +31,27 @@ public enum ExecRestatementReasonValue implements Formattable {
     CANCEL_ON_SYSTEM_FAILURE(7),
     MARKET_OPTION(8);
 
-    private int value;
+    private static final ValueTable<ExecRestatementReasonValue> VALUES = new ValueTable<ExecRestatementReasonValue>(values());
+
+    private final String value;
     
     ExecRestatementReasonValue(int value) {
-        this.value = value;
+        this.value = Integer.toString(value);
     }
 
     @Override public String value() {
-        return Integer.toString(value);
+        return value;
     }
 
     public static ExecRestatementReasonValue parse(int value) {
-        for (ExecRestatementReasonValue type : ExecRestatementReasonValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Integer.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static ExecRestatementReasonValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
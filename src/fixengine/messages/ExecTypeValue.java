@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -39,21 +41,27 @@ public enum ExecTypeValue implements Formattable {
     TRADE_CANCEL('H'),
     ORDER_STATUS('I');
 
-    private char value;
+    private static final ValueTable<ExecTypeValue> VALUES = new ValueTable<ExecTypeValue>(values());
+
+    private final String value;
     
     ExecTypeValue(char value) {
-        this.value = value;
+        this.value = Character.toString(value);
     }
 
     @Override public String value() {
-        return Character.toString(value);
+        return value;
     }
 
     public static ExecTypeValue parse(char value) {
-        for (ExecTypeValue type : ExecTypeValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Character.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static ExecTypeValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
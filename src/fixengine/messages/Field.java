@@ -26,6 +26,12 @@ public interface Field {
     void setRequired(Required required);
     boolean hasValue();
     void parse(ByteBuffer b);
+
+    /**
+     * Parses like {@link #parse(ByteBuffer)} but reports an error through
+     * <code>error</code> and returns <code>false</code> instead of throwing.
+     */
+    boolean parse(ByteBuffer b, ParseError error);
     boolean isFormatValid();
     boolean isValueValid();
     boolean isMissing();
@@ -33,5 +39,11 @@ public interface Field {
     boolean isParsed();
     boolean isEmpty();
     String format();
+
+    /**
+     * Writes the same bytes as {@link #format()} at the buffer's position.
+     */
+    void encode(ByteBuffer b);
     String prettyName();
+    void reset();
 }
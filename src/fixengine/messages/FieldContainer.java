@@ -16,17 +16,66 @@
 package fixengine.messages;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.joda.time.DateTime;
 
 public class FieldContainer implements Iterable<Field> {
-    private final Map<Integer, Field> fields = new LinkedHashMap<Integer, Field>();
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final ConcurrentMap<Class<?>, Requirements> REQUIREMENTS = new ConcurrentHashMap<Class<?>, Requirements>();
+
+    private FieldLayout layout = FieldLayout.EMPTY;
+    private Field[] fields = new Field[INITIAL_CAPACITY];
+
+    /*
+     * Value offsets of fields that were parsed lazily but not decoded yet:
+     * spans[2 * slot] is the start of the value and spans[2 * slot + 1] the
+     * position after its delimiter, or zero if there's nothing to decode.
+     */
+    private int[] spans;
+    private ByteBuffer source;
+
+    /*
+     * Slots parsed with a value and slots parsed with an empty value, one
+     * bit per slot. Validation compares these to the per-class masks in
+     * Requirements and only walks the fields to build an error.
+     */
+    private long[] present;
+    private long[] empty;
+
+    /*
+     * Slots whose values are decoded and validated, or null for all of them;
+     * see InterestSet.
+     */
+    private long[] interest;
 
     @Override public Iterator<Field> iterator() {
-        return fields.values().iterator();
+        return new Iterator<Field>() {
+            private int slot;
+
+            @Override public boolean hasNext() {
+                return slot < layout.size();
+            }
+
+            @Override public Field next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return materialize(slot++);
+            }
+
+            @Override public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    FieldLayout layout() {
+        return layout;
     }
 
     public Field lookup(Tag<?> tag) {
@@ -34,47 +83,370 @@ public class FieldContainer implements Iterable<Field> {
     }
 
     public Field lookup(int tag) {
-        return fields.get(tag);
+        int slot = layout.slot(tag);
+        if (slot < 0)
+            return null;
+        return materialize(slot);
     }
 
     public void parse(ByteBuffer b) {
+        parse(b, false);
+    }
+
+    /**
+     * Parses fields like {@link #parse(ByteBuffer)} but skips the values of
+     * fields whose slots are not set in <code>interest</code>. Skipped fields
+     * are left without a value and are ignored by validation.
+     */
+    void parse(ByteBuffer b, long[] interest) {
+        this.interest = interest;
+        parse(b, false);
+    }
+
+    /**
+     * Parses fields like {@link #parse(ByteBuffer)} but only records the
+     * offset and length of each value. A value is decoded the first time its
+     * field is looked up, so the buffer must not be modified while this
+     * container is in use. Value format errors are not detected during
+     * parsing; a field whose value fails to decode is left without a value.
+     */
+    public void parseLazily(ByteBuffer b) {
+        parse(b, true);
+    }
+
+    void parse(ByteBuffer b, boolean lazy) {
+        ParseError error = ParseError.perThread();
+        if (!parse(b, lazy, error))
+            throw error.exception();
+    }
+
+    boolean parse(ByteBuffer b, long[] interest, ParseError error) {
+        this.interest = interest;
+        return parse(b, false, error);
+    }
+
+    /*
+     * Parses like parse(ByteBuffer, boolean) but reports an error through
+     * the given error and returns false instead of throwing. The throwing
+     * methods are built on this one.
+     */
+    boolean parse(ByteBuffer b, boolean lazy, ParseError error) {
         while (b.hasRemaining()) {
-            b.mark();
-            int tag = Tag.parseTag(b);
-            Field field = lookup(tag);
-            if (field == null) {
-                b.reset();
+            int position = b.position();
+            int tag = Tag.parseTagNumber(b, error);
+            if (tag < 0)
+                return false;
+            int slot = layout.slot(tag);
+            if (slot < 0) {
+                b.position(position);
+                break;
+            }
+            Field field = fields[slot];
+            if (stopsAtRepeatedTag() && (field.isParsed() || isDeferred(slot))) {
+                b.position(position);
                 break;
             }
-            field.parse(b);
+            if (!isInteresting(slot) && field instanceof AbstractField<?>) {
+                if (AbstractField.skipValue(b) < 0)
+                    return error.set(ParseError.Problem.INVALID_BODY_LENGTH);
+                continue;
+            }
+            if (lazy && field instanceof AbstractField<?>) {
+                if (!defer(b, slot, error))
+                    return false;
+                continue;
+            }
+            if (!field.parse(b, error))
+                return false;
             if (!field.isFormatValid())
-                throw new InvalidValueFormatException(field.prettyName() + ": Invalid value format");
+                return error.set(ParseError.Problem.INVALID_VALUE_FORMAT, field, tag);
             if (!field.isValueValid())
-                throw new InvalidValueException(field.prettyName() + ": Invalid value");
+                return error.set(ParseError.Problem.INVALID_VALUE, field, tag);
+            parsed(slot, field.hasValue());
+        }
+        return true;
+    }
+
+    private void parsed(int slot, boolean hasValue) {
+        if (present == null) {
+            present = new long[words(fields.length)];
+            empty = new long[present.length];
+        }
+        long[] bits = hasValue ? present : empty;
+        bits[slot >>> 6] |= 1L << slot;
+    }
+
+    private static int words(int slots) {
+        return (slots + 63) >>> 6;
+    }
+
+    private static boolean isSet(long[] bits, int slot) {
+        return (bits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private boolean isInteresting(int slot) {
+        return interest == null || isSet(interest, slot);
+    }
+
+    /**
+     * Returns <code>true</code> if parsing should stop, rather than fail, when
+     * a tag that has already been parsed appears again. Repeating group
+     * instances use this to find where the next instance begins.
+     */
+    protected boolean stopsAtRepeatedTag() {
+        return false;
+    }
+
+    private boolean defer(ByteBuffer b, int slot, ParseError error) {
+        if (fields[slot].isParsed() || isDeferred(slot))
+            return error.set(ParseError.Problem.TAG_MULTIPLE_TIMES, fields[slot], layout.tag(slot));
+        int start = b.position();
+        if (AbstractField.skipValue(b) < 0)
+            return error.set(ParseError.Problem.INVALID_BODY_LENGTH);
+        if (spans == null)
+            spans = new int[2 * fields.length];
+        spans[2 * slot] = start;
+        spans[2 * slot + 1] = b.position();
+        source = b;
+        parsed(slot, b.position() - start > 1);
+        return true;
+    }
+
+    private boolean isDeferred(int slot) {
+        return spans != null && spans[2 * slot + 1] != 0;
+    }
+
+    private Field materialize(int slot) {
+        Field field = fields[slot];
+        if (isDeferred(slot)) {
+            int end = spans[2 * slot + 1];
+            spans[2 * slot + 1] = 0;
+            ((AbstractField<?>) field).parseValue(source, spans[2 * slot], end - 1);
+        }
+        return field;
+    }
+
+    /*
+     * Compares the values of the fields, ignoring how they got there: lazy
+     * spans, presence bits and other parse state are not part of a value.
+     */
+    boolean hasSameValues(FieldContainer other) {
+        if (layout.size() != other.layout.size())
+            return false;
+        for (int slot = 0; slot < layout.size(); slot++) {
+            Field field = other.lookup(layout.tag(slot));
+            if (field == null || !hasSameValue(materialize(slot), field))
+                return false;
+        }
+        return true;
+    }
+
+    int valuesHashCode() {
+        int result = 0;
+        for (int slot = 0; slot < layout.size(); slot++)
+            result = 31 * result + valueHashCode(materialize(slot));
+        return result;
+    }
+
+    private static boolean hasSameValue(Field field, Field other) {
+        if (field instanceof AbstractField<?> && other instanceof AbstractField<?>) {
+            Object value = ((AbstractField<?>) field).getValue();
+            return value == null ? !other.hasValue() : value.equals(((AbstractField<?>) other).getValue());
+        }
+        if (field instanceof RepeatingGroup && other instanceof RepeatingGroup)
+            return ((RepeatingGroup) field).hasSameValues((RepeatingGroup) other);
+        return field.equals(other);
+    }
+
+    private static int valueHashCode(Field field) {
+        if (field instanceof AbstractField<?>) {
+            Object value = ((AbstractField<?>) field).getValue();
+            return value == null ? 0 : value.hashCode();
         }
+        if (field instanceof RepeatingGroup)
+            return ((RepeatingGroup) field).valuesHashCode();
+        return field.hashCode();
     }
 
     public String format() {
         StringBuilder result = new StringBuilder();
-        for (Field field : fields.values()) {
-            result.append(field.format());
+        for (int slot = 0; slot < layout.size(); slot++) {
+            result.append(materialize(slot).format());
         }
         return result.toString();
     }
 
+    /**
+     * Writes the same bytes as {@link #format()} at the buffer's position.
+     */
+    public void encode(ByteBuffer b) {
+        encode(b, 0);
+    }
+
+    void encode(ByteBuffer b, int fromSlot) {
+        for (int slot = fromSlot; slot < layout.size(); slot++) {
+            materialize(slot).encode(b);
+        }
+    }
+
+    /**
+     * Clears all field values so that the container can be reused. The
+     * layout is kept, so a reset container behaves like a newly constructed
+     * one of the same type.
+     */
+    public void reset() {
+        for (int slot = 0; slot < layout.size(); slot++)
+            fields[slot].reset();
+        if (spans != null)
+            Arrays.fill(spans, 0);
+        source = null;
+        interest = null;
+        if (present != null) {
+            Arrays.fill(present, 0);
+            Arrays.fill(empty, 0);
+        }
+    }
+
     public void validate() {
-        for (Field field : fields.values()) {
-            if (field.isEmpty())
-                throw new EmptyTagException(field.prettyName() + ": Empty tag");
+        int slot = emptySlot();
+        if (slot >= 0)
+            throw new EmptyTagException(fields[slot].prettyName() + ": Empty tag");
+    }
+
+    /*
+     * Validates like validate() but reports an empty tag through the given
+     * error and returns false instead of throwing.
+     */
+    boolean validate(ParseError error) {
+        int slot = emptySlot();
+        if (slot >= 0)
+            return error.set(ParseError.Problem.EMPTY_TAG, fields[slot], layout.tag(slot));
+        return true;
+    }
+
+    private int emptySlot() {
+        if (present != null && isZero(empty))
+            return -1;
+        for (int slot = 0; slot < layout.size(); slot++) {
+            Field field = fields[slot];
+            if (isDeferred(slot) ? spans[2 * slot] == spans[2 * slot + 1] - 1 : field.isEmpty())
+                return slot;
+        }
+        return -1;
+    }
+
+    private static boolean isZero(long[] bits) {
+        for (long word : bits) {
+            if (word != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the first required field that has no value or
+     * <code>null</code> if all required fields have a value. Conditionally
+     * required fields are not checked; see {@link #missingConditionalField()}.
+     */
+    public Field missingField() {
+        long[] required = requirements().required;
+        if (present != null && containsAll(present, required, interest))
+            return null;
+        for (int slot = 0; slot < layout.size(); slot++) {
+            if (isSet(required, slot) && isInteresting(slot) && !materialize(slot).hasValue())
+                return fields[slot];
+        }
+        return null;
+    }
+
+    /**
+     * Returns the first conditionally required field whose condition holds
+     * but that has no value, or <code>null</code>.
+     */
+    public Field missingConditionalField() {
+        long[] conditional = requirements().conditional;
+        for (int slot = 0; slot < layout.size(); slot++) {
+            if (isSet(conditional, slot) && isInteresting(slot) && materialize(slot).isMissing())
+                return fields[slot];
+        }
+        return null;
+    }
+
+    private static boolean containsAll(long[] bits, long[] mask, long[] interest) {
+        for (int i = 0; i < mask.length; i++) {
+            long word = mask[i];
+            if (interest != null)
+                word &= i < interest.length ? interest[i] : 0;
+            if (i >= bits.length ? word != 0 : (bits[i] & word) != word)
+                return false;
+        }
+        return true;
+    }
+
+    private Requirements requirements() {
+        Requirements result = REQUIREMENTS.get(getClass());
+        if (result == null || result.layout != layout) {
+            result = new Requirements(this);
+            REQUIREMENTS.put(getClass(), result);
+        }
+        return result;
+    }
+
+    /*
+     * Required and conditionally required slots of a container class. All
+     * instances of a class declare the same fields, so the masks are shared.
+     */
+    private static class Requirements {
+        final FieldLayout layout;
+        final long[] required;
+        final long[] conditional;
+
+        Requirements(FieldContainer container) {
+            layout = container.layout;
+            required = new long[words(layout.size())];
+            conditional = new long[required.length];
+            for (int slot = 0; slot < layout.size(); slot++) {
+                Field field = container.fields[slot];
+                if (field.isConditional())
+                    conditional[slot >>> 6] |= 1L << slot;
+                else if (isRequired(field))
+                    required[slot >>> 6] |= 1L << slot;
+            }
+        }
+
+        private static boolean isRequired(Field field) {
+            if (field instanceof RepeatingGroup)
+                return ((RepeatingGroup) field).isRequired();
+            return ((AbstractField<?>) field).isRequired();
         }
     }
 
     public void add(Tag<?> tag, Required required) {
-        this.fields.put(tag.value(), tag.newField(required));
+        add(tag.value(), tag.newField(required));
     }
 
     public void add(RepeatingGroup group) {
-        this.fields.put(group.countTag().value(), group);
+        add(group.countTag().value(), group);
+    }
+
+    private void add(int tag, Field field) {
+        int slot = layout.slot(tag);
+        if (slot < 0) {
+            layout = layout.add(tag);
+            slot = layout.size() - 1;
+            if (slot == fields.length) {
+                Field[] newFields = new Field[fields.length * 2];
+                System.arraycopy(fields, 0, newFields, 0, fields.length);
+                fields = newFields;
+                if (spans != null)
+                    spans = Arrays.copyOf(spans, 2 * fields.length);
+                if (present != null) {
+                    present = Arrays.copyOf(present, words(fields.length));
+                    empty = Arrays.copyOf(empty, present.length);
+                }
+            }
+        }
+        fields[slot] = field;
     }
 
     protected void field(Tag<?> tag) {
@@ -114,6 +486,11 @@ public class FieldContainer implements Iterable<Field> {
         field.setValue(value);
     }
 
+    public void setEpochMicros(Tag<UtcTimestampField> tag, long micros, int precision) {
+        UtcTimestampField field = (UtcTimestampField) lookup(tag);
+        field.setEpochMicros(micros, precision);
+    }
+
     @SuppressWarnings("unchecked") public <T extends Formattable> void setEnum(Tag<? extends EnumField<T>> tag, T value) {
         EnumField<T> field = (EnumField<T>) lookup(tag);
         field.setValue(value);
@@ -124,16 +501,35 @@ public class FieldContainer implements Iterable<Field> {
         return field.getValue();
     }
 
+    /**
+     * Returns the value of a string field without creating a
+     * <code>String</code>; see {@link StringField#getCharSequence()}.
+     */
+    public CharSequence getCharSequence(Tag<StringField> tag) {
+        StringField field = (StringField) lookup(tag);
+        return field.getCharSequence();
+    }
+
     public Integer getInteger(Tag<IntegerField> tag) {
         IntegerField field = (IntegerField) lookup(tag);
         return field.getValue();
     }
 
+    public int getInt(Tag<IntegerField> tag) {
+        IntegerField field = (IntegerField) lookup(tag);
+        return field.intValue();
+    }
+
     public Double getFloat(Tag<FloatField> tag) {
         FloatField field = (FloatField) lookup(tag);
         return field.getValue();
     }
 
+    public double getDouble(Tag<FloatField> tag) {
+        FloatField field = (FloatField) lookup(tag);
+        return field.getDouble();
+    }
+
     public boolean getBoolean(Tag<BooleanField> tag) {
         BooleanField field = (BooleanField) lookup(tag);
         Boolean result = field.getValue();
@@ -147,6 +543,16 @@ public class FieldContainer implements Iterable<Field> {
         return field.getValue();
     }
 
+    public long getEpochMillis(Tag<UtcTimestampField> tag) {
+        UtcTimestampField field = (UtcTimestampField) lookup(tag);
+        return field.getEpochMillis();
+    }
+
+    public long getEpochMicros(Tag<UtcTimestampField> tag) {
+        UtcTimestampField field = (UtcTimestampField) lookup(tag);
+        return field.getEpochMicros();
+    }
+
     @SuppressWarnings("unchecked") public <T extends Formattable> T getEnum(Tag<? extends EnumField<T>> tag) {
         EnumField<T> field = (EnumField<T>) lookup(tag);
         return field.getValue();
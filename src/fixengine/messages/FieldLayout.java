@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+/**
+ * An immutable mapping from tag numbers to slots in declaration order.
+ * Layouts form a tree rooted at {@link #EMPTY}: adding a tag to a layout
+ * returns a shared child layout, so every container that declares the same
+ * tags in the same order (for example, all instances of one message type)
+ * ends up sharing a single layout and its direct index table.
+ */
+class FieldLayout {
+    static final FieldLayout EMPTY = new FieldLayout(new int[0]);
+
+    /* Tags above this are looked up with a linear scan.  */
+    private static final int MAX_INDEXED_TAG = 1024;
+
+    private final int[] tags;
+    private final short[] index;
+    private volatile FieldLayout[] children = new FieldLayout[0];
+
+    private FieldLayout(int[] tags) {
+        this.tags = tags;
+        this.index = new short[maxIndexedTag(tags) + 1];
+        for (int slot = 0; slot < tags.length; slot++) {
+            if (tags[slot] <= MAX_INDEXED_TAG)
+                index[tags[slot]] = (short) (slot + 1);
+        }
+    }
+
+    private static int maxIndexedTag(int[] tags) {
+        int result = 0;
+        for (int tag : tags) {
+            if (tag <= MAX_INDEXED_TAG)
+                result = Math.max(result, tag);
+        }
+        return result;
+    }
+
+    int size() {
+        return tags.length;
+    }
+
+    int tag(int slot) {
+        return tags[slot];
+    }
+
+    int slot(int tag) {
+        if (tag >= 0 && tag < index.length)
+            return index[tag] - 1;
+        if (tag <= MAX_INDEXED_TAG)
+            return -1;
+        for (int slot = 0; slot < tags.length; slot++) {
+            if (tags[slot] == tag)
+                return slot;
+        }
+        return -1;
+    }
+
+    FieldLayout add(int tag) {
+        FieldLayout child = child(children, tag);
+        if (child != null)
+            return child;
+        synchronized (this) {
+            child = child(children, tag);
+            if (child == null) {
+                int[] childTags = new int[tags.length + 1];
+                System.arraycopy(tags, 0, childTags, 0, tags.length);
+                childTags[tags.length] = tag;
+                child = new FieldLayout(childTags);
+
+                FieldLayout[] newChildren = new FieldLayout[children.length + 1];
+                System.arraycopy(children, 0, newChildren, 0, children.length);
+                newChildren[children.length] = child;
+                children = newChildren;
+            }
+            return child;
+        }
+    }
+
+    private FieldLayout child(FieldLayout[] children, int tag) {
+        for (FieldLayout child : children) {
+            if (child.tags[tags.length] == tag)
+                return child;
+        }
+        return null;
+    }
+}
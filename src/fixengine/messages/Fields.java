@@ -15,66 +15,8 @@
  */
 package fixengine.messages;
 
-import java.nio.ByteBuffer;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
-
 /**
  * @author Pekka Enberg
  */
-public class Fields implements Iterable<Field> {
-    private final Map<Integer, Field> fields = new LinkedHashMap<Integer, Field>();
-
-    @Override public Iterator<Field> iterator() {
-        return fields.values().iterator();
-    }
-
-    public Field lookup(Tag<?> tag) {
-        return fields.get(tag.value());
-    }
-
-    public Field lookup(int tag) {
-        return fields.get(tag);
-    }
-
-    public void parse(ByteBuffer b) {
-        while (b.hasRemaining()) {
-            b.mark();
-            int tag = Tag.parseTag(b);
-            Field field = lookup(tag);
-            if (field == null) {
-                b.reset();
-                break;
-            }
-            field.parse(b);
-            if (!field.isFormatValid())
-                throw new InvalidValueFormatException(field.prettyName() + ": Invalid value format");
-            if (!field.isValueValid())
-                throw new InvalidValueException(field.prettyName() + ": Invalid value");
-        }
-    }
-
-    public String format() {
-        StringBuilder result = new StringBuilder();
-        for (Field field : fields.values()) {
-            result.append(field.format());
-        }
-        return result.toString();
-    }
-
-    public void validate() {
-        for (Field field : fields.values()) {
-            if (field.isEmpty())
-                throw new EmptyTagException(field.prettyName() + ": Empty tag");
-        }
-    }
-
-    public void add(Tag<?> tag, Required required) {
-        this.fields.put(tag.value(), tag.newField(required));
-    }
-
-    public void add(RepeatingGroup group) {
-        this.fields.put(group.countTag().value(), group);
-    }
+public class Fields extends FieldContainer {
 }
@@ -15,15 +15,28 @@
  */
 package fixengine.messages;
 
-import java.text.DecimalFormat;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
+
+import lang.Decimals;
 
 /**
+ * A decimal field. The value is kept as a fixed-point decimal, a
+ * <code>long</code> mantissa and a scale, so values parsed off the wire are
+ * exact and parsing or formatting does not go through binary floating point.
+ *
  * @author Pekka Enberg 
  */
 public class FloatField extends AbstractField<Double> {
-    private static final Pattern DECIMAL_PATTERN = Pattern.compile("-?\\d*(\\.\\d*)?");
+    private static final int MIN_FORMAT_SCALE = 2;
+    private static final long MAX_MANTISSA = (Long.MAX_VALUE - 9) / 10;
+
+    /* Maximum number of fraction digits kept when converting from a double.  */
+    private static final int MAX_DOUBLE_SCALE = 15;
+    private static final double MAX_EXACT_DOUBLE = 1L << 53;
+
+    private long mantissa;
+    private int scale;
+    private boolean hasDecimal;
 
     public FloatField(Tag<? extends FloatField> tag) {
         this(tag, null, Required.YES);
@@ -34,30 +47,119 @@ public class FloatField extends AbstractField<Double> {
     }
 
     public FloatField(Tag<? extends FloatField> tag, Double value, Required required) {
-        super(tag, value, required);
+        super(tag, null, required);
+        setValue(value);
+    }
+
+    @Override public void setValue(Double value) {
+        if (value == null) {
+            mantissa = 0;
+            scale = 0;
+            hasDecimal = false;
+            return;
+        }
+        setDouble(value);
+    }
+
+    /**
+     * Sets the value to the shortest decimal, up to 15 fraction digits, that
+     * converts back to <code>value</code>. Throws
+     * {@link IllegalArgumentException} if the value does not fit the
+     * mantissa.
+     */
+    public void setDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            throw new IllegalArgumentException("Not a decimal: " + value);
+        if (Math.abs(value) >= Long.MAX_VALUE)
+            throw new IllegalArgumentException("Value out of range: " + value);
+        int s = 0;
+        while (s < MAX_DOUBLE_SCALE && (double) Math.round(value * Decimals.pow10(s)) / Decimals.pow10(s) != value
+                && Math.abs(value * Decimals.pow10(s + 1)) < MAX_EXACT_DOUBLE)
+            s++;
+        setDecimal(Math.round(value * Decimals.pow10(s)), s);
+    }
+
+    public void setDecimal(long mantissa, int scale) {
+        if (scale < 0 || scale > Decimals.MAX_SCALE)
+            throw new IllegalArgumentException("Scale out of range: " + scale);
+        this.mantissa = mantissa;
+        this.scale = scale;
+        this.hasDecimal = true;
+    }
+
+    public long getMantissa() {
+        return mantissa;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public double getDouble() {
+        return Decimals.toDouble(mantissa, scale);
+    }
+
+    @Override public Double getValue() {
+        if (!hasDecimal)
+            return null;
+        return getDouble();
+    }
+
+    @Override public boolean hasValue() {
+        return hasDecimal;
     }
 
     @Override
     public void parse(String value) {
-        Matcher matcher = DECIMAL_PATTERN.matcher(value);
-        if (!matcher.matches()) {
-            validFormat = false;
-            return;
+        byte[] bytes = value.getBytes();
+        parse(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    @Override
+    protected void parse(ByteBuffer b, int start, int end) {
+        int i = start;
+        boolean negative = i < end && b.get(i) == '-';
+        if (negative)
+            i++;
+        long m = 0;
+        int s = 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            int ch = b.get(i);
+            if (ch == '.' && !point) {
+                point = true;
+                continue;
+            }
+            if (ch < '0' || ch > '9' || m > MAX_MANTISSA || s == Decimals.MAX_SCALE) {
+                validFormat = false;
+                return;
+            }
+            m = m * 10 + (ch - '0');
+            digits++;
+            if (point)
+                s++;
         }
-        try {
-            this.value = Double.parseDouble(value);
-        } catch (NumberFormatException e) {
+        if (digits == 0) {
             validFormat = false;
+            return;
         }
+        setDecimal(negative ? -m : m, s);
     }
 
     @Override
     protected final String value() {
-        DecimalFormat format = new DecimalFormat("0.00#############");
-        return format.format(doubleValue());
+        StringBuilder result = new StringBuilder(24);
+        Decimals.append(result, mantissa, scale, MIN_FORMAT_SCALE);
+        return result.toString();
+    }
+
+    @Override
+    protected void encodeValue(ByteBuffer b) {
+        Decimals.put(b, mantissa, scale, MIN_FORMAT_SCALE);
     }
 
     protected Double doubleValue() {
-        return value;
+        return getValue();
     }
 }
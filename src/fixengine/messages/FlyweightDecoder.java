@@ -0,0 +1,218 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import lang.ByteBuffers;
+import lang.Decimals;
+import lang.Integers;
+import fixengine.tags.BeginString;
+import fixengine.tags.BodyLength;
+import fixengine.tags.CheckSum;
+import fixengine.tags.MsgType;
+
+/**
+ * A flyweight over a raw FIX frame. The decoder only records the position of
+ * each tag value and the typed getters read values straight from the wrapped
+ * buffer, so decoding a message does not allocate. A decoder instance can be
+ * reused for any number of frames but the values are only valid until the
+ * next call to {@link #wrap(ByteBuffer)} or until the buffer is modified.
+ */
+public class FlyweightDecoder {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private ByteBuffer buffer;
+    private int[] tags = new int[INITIAL_CAPACITY];
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int count;
+
+    public FlyweightDecoder wrap(silvertip.Message m) {
+        return wrap(m.toByteBuffer());
+    }
+
+    public FlyweightDecoder wrap(ByteBuffer b) {
+        this.buffer = b;
+        this.count = 0;
+        int position = b.position();
+        int limit = b.limit();
+        while (position < limit) {
+            int tag = 0;
+            int start = position;
+            for (;;) {
+                if (position == limit)
+                    throw new GarbledMessageException("Truncated tag");
+                int ch = b.get(position++);
+                if (ch == '=')
+                    break;
+                if (ch < '0' || ch > '9')
+                    throw new GarbledMessageException("Invalid tag number");
+                tag = tag * 10 + (ch - '0');
+            }
+            if (position - 1 == start)
+                throw new GarbledMessageException("Invalid tag number");
+            int offset = position;
+            position = ByteBuffers.indexOf(b, offset, limit, (byte) Field.DELIMITER);
+            if (position < 0)
+                throw new GarbledMessageException("Truncated value for tag " + tag);
+            add(tag, offset, position - offset);
+            position++;
+        }
+        validateFrame(b.position());
+        return this;
+    }
+
+    private void validateFrame(int start) {
+        if (count < 4 || tags[0] != BeginString.TAG.value() || tags[1] != BodyLength.TAG.value() || tags[2] != MsgType.TAG.value())
+            throw new GarbledMessageException("Invalid standard header");
+        int checkSum = count - 1;
+        if (tags[checkSum] != CheckSum.TAG.value())
+            throw new GarbledMessageException("CheckSum(10): is missing");
+        int checkSumPosition = offsets[checkSum] - 3;
+        if (tryParseInt(1) != checkSumPosition - offsets[2] + 3)
+            throw new GarbledMessageException("BodyLength(9): Invalid BodyLength");
+        int expected = Checksums.checksum(buffer, start, checkSumPosition);
+        if (lengths[checkSum] != 3 || tryParseInt(checkSum) != expected)
+            throw new GarbledMessageException("CheckSum(10): Invalid CheckSum");
+    }
+
+    private void add(int tag, int offset, int length) {
+        if (count == tags.length) {
+            tags = grow(tags);
+            offsets = grow(offsets);
+            lengths = grow(lengths);
+        }
+        tags[count] = tag;
+        offsets[count] = offset;
+        lengths[count] = length;
+        count++;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] result = new int[array.length * 2];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int tagAt(int index) {
+        return tags[index];
+    }
+
+    public int indexOf(int tag) {
+        return indexOf(tag, 0);
+    }
+
+    public int indexOf(int tag, int from) {
+        for (int i = from; i < count; i++) {
+            if (tags[i] == tag)
+                return i;
+        }
+        return -1;
+    }
+
+    public boolean hasValue(Tag<?> tag) {
+        int index = indexOf(tag.value());
+        return index >= 0 && lengths[index] > 0;
+    }
+
+    public MsgTypeValue getMsgType() {
+        return MsgTypeValue.lookup(buffer, offsets[2], lengths[2]);
+    }
+
+    public int getInt(Tag<IntegerField> tag) {
+        return parseInt(require(tag));
+    }
+
+    public int getInt(int index) {
+        return parseInt(index);
+    }
+
+    public char getChar(Tag<?> tag) {
+        return (char) buffer.get(offsets[require(tag)]);
+    }
+
+    public boolean getBoolean(Tag<BooleanField> tag) {
+        int index = indexOf(tag.value());
+        if (index < 0 || lengths[index] == 0)
+            return false;
+        return buffer.get(offsets[index]) == 'Y';
+    }
+
+    public double getFloat(Tag<? extends FloatField> tag) {
+        return parseFloat(require(tag));
+    }
+
+    public double getFloat(int index) {
+        return parseFloat(index);
+    }
+
+    /**
+     * Copies the value of the tag to <code>dst</code> and returns the number
+     * of bytes copied. Use this instead of {@link #getString(Tag)} on paths
+     * that must not allocate.
+     */
+    public int getBytes(Tag<?> tag, byte[] dst, int offset) {
+        int index = require(tag);
+        int length = lengths[index];
+        for (int i = 0; i < length; i++)
+            dst[offset + i] = buffer.get(offsets[index] + i);
+        return length;
+    }
+
+    public String getString(Tag<? extends StringField> tag) {
+        int index = indexOf(tag.value());
+        if (index < 0)
+            return null;
+        return getString(index);
+    }
+
+    public String getString(int index) {
+        char[] chars = new char[lengths[index]];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = (char) buffer.get(offsets[index] + i);
+        return new String(chars);
+    }
+
+    private int require(Tag<?> tag) {
+        int index = indexOf(tag.value());
+        if (index < 0 || lengths[index] == 0)
+            throw new IllegalArgumentException(tag.prettyName() + ": Tag missing");
+        return index;
+    }
+
+    private long tryParseInt(int index) {
+        return Integers.tryParseInt(buffer, offsets[index], offsets[index] + lengths[index]);
+    }
+
+    private int parseInt(int index) {
+        long result = tryParseInt(index);
+        if (result == Integers.INVALID)
+            throw new InvalidValueFormatException(tags[index] + ": Invalid value format");
+        return (int) result;
+    }
+
+    private double parseFloat(int index) {
+        double result = Decimals.parseDouble(buffer, offsets[index], offsets[index] + lengths[index]);
+        if (Double.isNaN(result))
+            throw new InvalidValueFormatException(tags[index] + ": Invalid value format");
+        return result;
+    }
+}
@@ -17,4 +17,5 @@ package fixengine.messages;
 
 public interface Formattable {
     String value();
+    byte[] bytes();
 }
@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -28,21 +30,27 @@ public enum HandlInstValue implements Formattable {
     /** Manual order, best execution */
     MANUAL_ORDER('3');
 
-    private char value;
+    private static final ValueTable<HandlInstValue> VALUES = new ValueTable<HandlInstValue>(values());
+
+    private final String value;
     
     HandlInstValue(char value) {
-        this.value = value;
+        this.value = Character.toString(value);
     }
 
     @Override public String value() {
-        return Character.toString(value);
+        return value;
     }
 
     public static HandlInstValue parse(char value) {
-        for (HandlInstValue type : HandlInstValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Character.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static HandlInstValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
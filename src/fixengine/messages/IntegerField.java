@@ -15,10 +15,17 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
+import lang.Integers;
+
 /**
  * @author Pekka Enberg 
  */
 public class IntegerField extends AbstractField<Integer> {
+    private int intValue;
+    private boolean hasIntValue;
+
     public IntegerField(Tag<IntegerField> tag) {
         this(tag, null, Required.YES);
     }
@@ -28,24 +35,63 @@ public class IntegerField extends AbstractField<Integer> {
     }
 
     public IntegerField(Tag<IntegerField> tag, Integer value, Required required) {
-        super(tag, value, required);
+        super(tag, null, required);
+        setValue(value);
+    }
+
+    @Override public void setValue(Integer value) {
+        if (value == null) {
+            intValue = 0;
+            hasIntValue = false;
+            return;
+        }
+        setInt(value);
+    }
+
+    public void setInt(int value) {
+        this.intValue = value;
+        this.hasIntValue = true;
+    }
+
+    @Override public Integer getValue() {
+        if (!hasIntValue)
+            return null;
+        return intValue;
+    }
+
+    @Override public boolean hasValue() {
+        return hasIntValue;
     }
 
     @Override
     public void parse(String value) {
         try {
-            this.value = Integer.parseInt(value);
+            setInt(Integer.parseInt(value));
         } catch (NumberFormatException e) {
             validFormat = false;
         }
     }
 
+    @Override
+    protected void parse(ByteBuffer b, int start, int end) {
+        long result = Integers.tryParseInt(b, start, end);
+        if (result == Integers.INVALID)
+            validFormat = false;
+        else
+            setInt((int) result);
+    }
+
     @Override
     protected final String value() {
         return Integer.toString(intValue());
     }
 
-    protected Integer intValue() {
-        return value;
+    @Override
+    protected void encodeValue(ByteBuffer b) {
+        Integers.put(b, intValue());
+    }
+
+    protected int intValue() {
+        return intValue;
     }
 }
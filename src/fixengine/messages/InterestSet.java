@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The body fields a consumer cares about, per message type. When a frame is
+ * parsed with {@link Parser#parse(java.nio.ByteBuffer, InterestSet, Parser.Callback)}
+ * the values of other fields are only bounds-checked and skipped: they are
+ * never decoded, are left without a value and are not validated. The header,
+ * body length and checksum are always checked. Message types without a
+ * registered interest are parsed in full.
+ *
+ * Conditionally required fields are checked against the parsed fields only,
+ * so a field that a condition depends on should be registered as well.
+ *
+ * Register all interests before parsing; after that an instance can be
+ * shared between threads.
+ */
+public class InterestSet {
+    private final Map<MsgTypeValue, Interest> interests = new EnumMap<MsgTypeValue, Interest>(MsgTypeValue.class);
+
+    public InterestSet register(MsgTypeValue type, Tag<?>... tags) {
+        int[] values = new int[tags.length];
+        for (int i = 0; i < tags.length; i++)
+            values[i] = tags[i].value();
+        interests.put(type, new Interest(values));
+        return this;
+    }
+
+    public boolean isRegistered(MsgTypeValue type) {
+        return interests.containsKey(type);
+    }
+
+    /**
+     * Returns the slots of <code>layout</code> that are of interest for
+     * <code>type</code>, one bit per slot, or <code>null</code> if all of them
+     * are.
+     */
+    long[] slots(MsgTypeValue type, FieldLayout layout) {
+        Interest interest = interests.get(type);
+        if (interest == null)
+            return null;
+        return interest.slots(layout);
+    }
+
+    private static class Interest {
+        private final int[] tags;
+        private volatile Slots cached;
+
+        Interest(int[] tags) {
+            this.tags = tags;
+        }
+
+        long[] slots(FieldLayout layout) {
+            Slots result = cached;
+            if (result == null || result.layout != layout) {
+                result = new Slots(layout, tags);
+                cached = result;
+            }
+            return result.bits;
+        }
+    }
+
+    /*
+     * Slot bits of one layout. All messages of a type share a layout, so
+     * these are computed once per type.
+     */
+    private static class Slots {
+        final FieldLayout layout;
+        final long[] bits;
+
+        Slots(FieldLayout layout, int[] tags) {
+            this.layout = layout;
+            this.bits = new long[(layout.size() + 63) >>> 6];
+            for (int tag : tags) {
+                int slot = layout.slot(tag);
+                if (slot >= 0)
+                    bits[slot >>> 6] |= 1L << slot;
+            }
+        }
+    }
+}
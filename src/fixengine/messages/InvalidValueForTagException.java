@@ -23,5 +23,10 @@ public class InvalidValueForTagException extends RuntimeException {
         super(message);
     }
 
+    /* See ParseException.fillInStackTrace().  */
+    @Override public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
     private static final long serialVersionUID = 1L;
 }
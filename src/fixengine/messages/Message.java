@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 import org.joda.time.DateTime;
 
 import fixengine.Config;
@@ -41,6 +43,7 @@ public interface Message extends Parseable, Iterable<Field>  {
     void setHeaderConfig(Config config);
     void setMsgSeqNum(int next);
     void setSendingTime(DateTime sendingTime);
+    void setSendingTime(long micros);
     void setOrigSendingTime(DateTime origSendingTime);
     void setPossDupFlag(boolean possDupFlag);
     DateTime getSendingTime();
@@ -48,11 +51,16 @@ public interface Message extends Parseable, Iterable<Field>  {
     boolean getPossDupFlag();
     boolean isPointToPoint();
     boolean hasAccurateSendingTime(DateTime currentTime);
+    boolean hasAccurateSendingTime(long currentTimeMicros);
     boolean hasOrigSendTimeAfterSendingTime();
     boolean hasOrigSendingTime();
     boolean hasValidBeginString(Config config);
     boolean hasValidSenderCompId(Config config);
     boolean hasValidTargetCompId(Config config);
     boolean isTooLowSeqNum(int seqNo);
+    void parseLazily(ByteBuffer b);
     void validate();
+    Field missingField();
+    Field missingConditionalField();
+    void reset();
 }
\ No newline at end of file
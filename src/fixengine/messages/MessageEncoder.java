@@ -0,0 +1,194 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import lang.Integers;
+import fixengine.tags.BeginString;
+import fixengine.tags.BodyLength;
+import fixengine.tags.CheckSum;
+
+/**
+ * Encodes messages straight into a reusable buffer. The body is written
+ * first, leaving fixed-width room in front of it for BeginString and
+ * BodyLength, which are back-patched right before the body once its length
+ * is known. The encoded frame is byte for byte the same as
+ * {@link Message#format()} and is handed out as a view of the encoder's
+ * buffer that is only valid until the next call to {@link #encode(Message)}.
+ *
+ * Note: this class is <b>not thread-safe</b>!
+ */
+public class MessageEncoder {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /* Room for "8=<BeginString><SOH>9=<BodyLength><SOH>".  */
+    private static final int PREFIX_ROOM = 32;
+
+    private ByteBuffer buffer;
+    private ByteBuffer frame;
+
+    public MessageEncoder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MessageEncoder(int capacity) {
+        allocate(Math.max(capacity, PREFIX_ROOM));
+    }
+
+    private void allocate(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+        frame = buffer.duplicate();
+    }
+
+    public ByteBuffer encode(Message message) {
+        return encode(message, null);
+    }
+
+    /**
+     * Encodes the message with the BeginString, SenderCompID and TargetCompID
+     * of <code>preEncoded</code> instead of the message's own values; only
+     * the rest of the header is encoded from the message. Messages that do
+     * not extend {@link AbstractMessage} are encoded with
+     * {@link Message#format()} and cannot use a pre-encoded header.
+     */
+    public ByteBuffer encode(Message message, PreEncodedHeader preEncoded) {
+        if (!(message instanceof AbstractMessage)) {
+            if (preEncoded != null)
+                throw new IllegalArgumentException("Pre-encoded header not supported for " + message.getClass().getName());
+            return ByteBuffer.wrap(message.format().getBytes());
+        }
+        for (;;) {
+            try {
+                return encode((AbstractMessage) message, preEncoded);
+            } catch (BufferOverflowException e) {
+                allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Encodes the template. The checksum is computed from the cached byte
+     * sums of the template's segments, so only the header fields that are
+     * encoded per message and BodyLength are summed byte by byte.
+     */
+    public ByteBuffer encode(MessageTemplate template, PreEncodedHeader preEncoded) {
+        for (;;) {
+            try {
+                return encodeTemplate(template, preEncoded);
+            } catch (BufferOverflowException e) {
+                allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private ByteBuffer encodeTemplate(MessageTemplate template, PreEncodedHeader preEncoded) {
+        buffer.clear();
+        buffer.position(PREFIX_ROOM);
+        int checksum = template.encodeBody(buffer, preEncoded);
+        int end = buffer.position();
+        int start;
+        if (preEncoded != null) {
+            start = prefix(preEncoded.beginString(), end - PREFIX_ROOM);
+            checksum += preEncoded.beginStringSum();
+            checksum = Checksums.sum(buffer, start + preEncoded.beginString().length, PREFIX_ROOM, checksum);
+        } else {
+            start = prefix(template.getBeginString(), end - PREFIX_ROOM);
+            checksum = Checksums.sum(buffer, start, PREFIX_ROOM, checksum);
+        }
+        return trailer(start, end, checksum % 256);
+    }
+
+    private ByteBuffer encode(AbstractMessage message, PreEncodedHeader preEncoded) {
+        buffer.clear();
+        buffer.position(PREFIX_ROOM);
+        int splice = message.encodeBody(buffer, preEncoded);
+        int end = buffer.position();
+        int checksum;
+        int start;
+        if (preEncoded != null) {
+            start = prefix(preEncoded.beginString(), end - PREFIX_ROOM);
+            int compIdsEnd = splice + preEncoded.compIds().length;
+            checksum = preEncoded.beginStringSum() + preEncoded.compIdsSum();
+            checksum = Checksums.sum(buffer, start + preEncoded.beginString().length, splice, checksum);
+            checksum = Checksums.sum(buffer, compIdsEnd, end, checksum);
+        } else {
+            start = prefix(message.getBeginString(), end - PREFIX_ROOM);
+            checksum = Checksums.sum(buffer, start, end, 0);
+        }
+        return trailer(start, end, checksum % 256);
+    }
+
+    private ByteBuffer trailer(int start, int end, int checksum) {
+        buffer.position(end);
+        buffer.put(CheckSum.TAG.prefix());
+        buffer.put((byte) ('0' + checksum / 100));
+        buffer.put((byte) ('0' + checksum / 10 % 10));
+        buffer.put((byte) ('0' + checksum % 10));
+        buffer.put((byte) Field.DELIMITER);
+        frame.clear();
+        frame.limit(buffer.position());
+        frame.position(start);
+        return frame;
+    }
+
+    /*
+     * Writes BeginString and BodyLength so that they end right before the
+     * body and returns the position of the first byte.
+     */
+    private int prefix(String beginString, int bodyLength) {
+        byte[] beginStringTag = BeginString.TAG.prefix();
+        int start = prefixStart(beginStringTag.length + beginString.length() + 1, bodyLength);
+        buffer.position(start);
+        buffer.put(beginStringTag);
+        for (int i = 0; i < beginString.length(); i++)
+            buffer.put((byte) beginString.charAt(i));
+        buffer.put((byte) Field.DELIMITER);
+        bodyLength(bodyLength);
+        return start;
+    }
+
+    private int prefix(byte[] beginString, int bodyLength) {
+        int start = prefixStart(beginString.length, bodyLength);
+        buffer.position(start);
+        buffer.put(beginString);
+        bodyLength(bodyLength);
+        return start;
+    }
+
+    private static int prefixStart(int beginStringLength, int bodyLength) {
+        int start = PREFIX_ROOM - beginStringLength - BodyLength.TAG.prefix().length - digits(bodyLength) - 1;
+        if (start < 0)
+            throw new IllegalArgumentException("BeginString too long");
+        return start;
+    }
+
+    private void bodyLength(int bodyLength) {
+        buffer.put(BodyLength.TAG.prefix());
+        Integers.put(buffer, bodyLength);
+        buffer.put((byte) Field.DELIMITER);
+    }
+
+    private static int digits(int value) {
+        int result = 1;
+        while (value >= 10) {
+            value /= 10;
+            result++;
+        }
+        return result;
+    }
+}
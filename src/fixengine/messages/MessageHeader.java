@@ -17,6 +17,8 @@ package fixengine.messages;
 
 import java.nio.ByteBuffer;
 
+import lang.Integers;
+
 import org.joda.time.DateTime;
 import org.joda.time.Minutes;
 
@@ -38,7 +40,8 @@ import fixengine.tags.TargetCompID;
  * @author Pekka Enberg 
  */
 public class MessageHeader extends FieldContainer implements Parseable {
-    private static final Minutes MAX_TIME_DIFFERENCE = Minutes.TWO;
+    private static final long MAX_TIME_DIFFERENCE_MSEC = Minutes.TWO.getMinutes() * 60 * 1000L;
+    private static final MessageHeader TEMPLATE = new MessageHeader();
 
     private final FieldContainer head = new FieldContainer();
 
@@ -72,57 +75,70 @@ public class MessageHeader extends FieldContainer implements Parseable {
     }
 
     @Override public void parse(ByteBuffer b) {
-        parseHeadField(b, BeginString.TAG);
-        parseHeadField(b, BodyLength.TAG);
-        trailer(b);
-        parseHeadField(b, MsgType.TAG);
-        super.parse(b);
+        ParseError error = ParseError.perThread();
+        if (!parse(b, error))
+            throw error.exception();
     }
 
-    private void trailer(ByteBuffer b) {
-        int checkSumPosition = b.position() + getBodyLength();
-        int parsedChecksum = parseChecksum(b, checkSumPosition);
-        int expectedChecksum = Checksums.checksum(b, checkSumPosition);
-        if (parsedChecksum != expectedChecksum) {
-            throw new InvalidCheckSumException("CheckSum(10): Expected: " + expectedChecksum + ", but was: " + parsedChecksum);
-        }
-        b.limit(checkSumPosition);
+    /*
+     * Parses like parse(ByteBuffer) but reports an error through the given
+     * error and returns false instead of throwing.
+     */
+    boolean parse(ByteBuffer b, ParseError error) {
+        int start = b.position();
+        return parseHeadField(b, BeginString.TAG, error)
+            && parseHeadField(b, BodyLength.TAG, error)
+            && trailer(b, start, error)
+            && parseHeadField(b, MsgType.TAG, error)
+            && parse(b, false, error);
     }
 
-    private static int parseChecksum(ByteBuffer b, int checkSumPosition) {
-        if (checkSumPosition > b.limit()) {
-            throw new InvalidBodyLengthException();
-        }
+    private boolean trailer(ByteBuffer b, int start, ParseError error) {
+        int checkSumPosition = b.position() + getBodyLength();
+        if (checkSumPosition < b.position() || checkSumPosition > b.limit())
+            return error.set(ParseError.Problem.INVALID_BODY_LENGTH);
         int origPosition = b.position();
         b.position(checkSumPosition);
-        try {
-            CheckSum.TAG.parse(b);
-        } catch (UnexpectedTagException e) {
-            throw new InvalidBodyLengthException();
-        } catch (ParseException e) {
-            throw new InvalidBodyLengthException();
-        }
-        StringField field = CheckSum.TAG.newField(Required.YES);
-        field.parse(b);
+        int tag = Tag.parseTagNumber(b, error);
+        int valueStart = b.position();
+        int valueEnd = AbstractField.skipValue(b);
         b.position(origPosition);
-        if (field.getValue().length() < 3) {
-            throw new InvalidCheckSumException("CheckSum(10): CheckSum must have a length of three: " + field.getValue());
-        }
-        return Integer.parseInt(field.getValue());
-    }
-
-    private void parseHeadField(ByteBuffer b, Tag<?> tag) {
-        try {
-            tag.parse(b);
-            Field field = head.lookup(tag.value());
-            field.parse(b);
-            if (!field.isFormatValid())
-                throw new GarbledMessageException(tag.prettyName() + ": Invalid value format");
-            if (field.isEmpty())
-                throw new GarbledMessageException(tag.prettyName() + ": Empty tag");
-        } catch (UnexpectedTagException e) {
-            throw new GarbledMessageException(tag.prettyName() + ": is missing");
-        }
+        if (tag != CheckSum.TAG.value() || valueEnd < 0)
+            return error.set(ParseError.Problem.INVALID_BODY_LENGTH);
+        long parsedChecksum = Integers.tryParseInt(b, valueStart, valueEnd);
+        if (valueEnd - valueStart < 3 || parsedChecksum == Integers.INVALID)
+            return error.set(ParseError.Problem.INVALID_CHECKSUM_LENGTH);
+        int expectedChecksum = Checksums.checksum(b, start, checkSumPosition);
+        if (parsedChecksum != expectedChecksum)
+            return error.set(ParseError.Problem.INVALID_CHECKSUM, expectedChecksum, (int) parsedChecksum);
+        b.limit(checkSumPosition);
+        return true;
+    }
+
+    private boolean parseHeadField(ByteBuffer b, Tag<?> tag, ParseError error) {
+        int value = Tag.parseTagNumber(b, error);
+        if (value < 0)
+            return false;
+        if (value != tag.value())
+            return error.set(ParseError.Problem.GARBLED_MISSING_TAG, tag);
+        Field field = head.lookup(value);
+        if (!field.parse(b, error))
+            return false;
+        if (!field.isFormatValid())
+            return error.set(ParseError.Problem.GARBLED_VALUE_FORMAT, tag);
+        if (field.isEmpty())
+            return error.set(ParseError.Problem.GARBLED_EMPTY_TAG, tag);
+        return true;
+    }
+
+    /*
+     * Writes the fields that follow SenderCompID and TargetCompID, which are
+     * the first two fields of the header. See PreEncodedHeader.
+     */
+    void encodeAfterCompIds(ByteBuffer b) {
+        int targetCompId = layout().slot(TargetCompID.TAG.value());
+        assert layout().slot(SenderCompID.TAG.value()) == 0 && targetCompId == 1;
+        encode(b, targetCompId + 1);
     }
 
     public String getBeginString() {
@@ -134,7 +150,7 @@ public class MessageHeader extends FieldContainer implements Parseable {
     }
 
     public int getBodyLength() {
-        return head.getInteger(BodyLength.TAG);
+        return head.getInt(BodyLength.TAG);
     }
 
     public String getMsgType() {
@@ -150,22 +166,52 @@ public class MessageHeader extends FieldContainer implements Parseable {
     }
 
     public boolean hasAccurateSendingTime(DateTime currentTime) {
+        return hasAccurateSendingTime(currentTime.getMillis() * 1000);
+    }
+
+    public boolean hasAccurateSendingTime(long currentTimeMicros) {
         if (!hasValue(SendingTime.TAG)) {
             return true;
         }
-        Minutes difference = Minutes.minutesBetween(currentTime, getDateTime(SendingTime.TAG));
-        return Math.abs(difference.getMinutes()) < MAX_TIME_DIFFERENCE.getMinutes();
+        long difference = getEpochMillis(SendingTime.TAG) - currentTimeMicros / 1000;
+        return Math.abs(difference) < MAX_TIME_DIFFERENCE_MSEC;
     }
 
     public boolean hasOrigSendTimeAfterSendingTime() {
         if (!getBoolean(PossDupFlag.TAG) || !hasValue(OrigSendingTime.TAG)) {
             return true;
         }
-        return !getDateTime(OrigSendingTime.TAG).isAfter(getDateTime(SendingTime.TAG));
+        return getEpochMicros(OrigSendingTime.TAG) <= getEpochMicros(SendingTime.TAG);
+    }
+
+    /**
+     * Clears all header fields except MsgType, which is fixed for the
+     * message that owns this header.
+     */
+    @Override public void reset() {
+        String msgType = getMsgType();
+        head.reset();
+        super.reset();
+        setMsgType(msgType);
+    }
+
+    public static boolean isHeaderTag(int tag) {
+        return TEMPLATE.head.lookup(tag) != null || TEMPLATE.lookup(tag) != null;
     }
 
     public Message newMessage() {
         MsgTypeValue type = MsgTypeValue.parse(getMsgType());
         return type.newMessage(this);
     }
+
+    /*
+     * Like newMessage() but reports an invalid or unsupported message type
+     * through the given error and returns null instead of throwing.
+     */
+    Message newMessage(ParseError error) {
+        MsgTypeValue type = MsgTypeValue.parse(getMsgType(), error);
+        if (type == null)
+            return null;
+        return type.newMessage(this);
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Recycles message instances per message type. A message obtained with
+ * {@link #acquire(MsgTypeValue)} belongs to the caller until it is handed
+ * back with {@link #release(Message)}, after which it must not be touched:
+ * the next acquire of the same type resets it and hands it out again.
+ * Messages that are never released are simply garbage collected.
+ *
+ * Note: this class is <b>not thread-safe</b>!
+ */
+public class MessagePool {
+    private static final int DEFAULT_MAX_IDLE = 64;
+
+    private final Map<MsgTypeValue, ArrayDeque<AbstractMessage>> idle = new EnumMap<MsgTypeValue, ArrayDeque<AbstractMessage>>(MsgTypeValue.class);
+    private final PreParsedHeader preParsedHeader = new PreParsedHeader();
+    private final int maxIdle;
+
+    public MessagePool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param maxIdle maximum number of released messages kept per type
+     */
+    public MessagePool(int maxIdle) {
+        this.maxIdle = maxIdle;
+        for (MsgTypeValue type : MsgTypeValue.values())
+            idle.put(type, new ArrayDeque<AbstractMessage>());
+    }
+
+    public Message acquire(MsgTypeValue type) {
+        AbstractMessage message = idle.get(type).pollLast();
+        if (message == null)
+            return type.newMessage(new MessageHeader(type));
+        message.released = false;
+        message.reset();
+        return message;
+    }
+
+    /**
+     * Returns the message to the pool. Releasing a message more than once is
+     * harmless.
+     */
+    public void release(Message message) {
+        if (!(message instanceof AbstractMessage))
+            return;
+        AbstractMessage m = (AbstractMessage) message;
+        if (m.released)
+            return;
+        m.released = true;
+        ArrayDeque<AbstractMessage> free = idle.get(MsgTypeValue.parse(m.getMsgType()));
+        if (free.size() < maxIdle)
+            free.addLast(m);
+    }
+
+    /**
+     * Acquires a message for the frame that starts at the buffer's position,
+     * or returns <code>null</code> if the frame's message type cannot be
+     * determined.
+     */
+    AbstractMessage acquire(ByteBuffer b) {
+        if (!preParsedHeader.parse(b) || preParsedHeader.getMsgType() == null)
+            return null;
+        return (AbstractMessage) acquire(preParsedHeader.getMsgType());
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.DateTime;
+
+import fixengine.tags.MsgType;
+
+/**
+ * A pre-rendered message for order flow where consecutive messages differ in
+ * only a few fields. The template is created from a prototype message, for
+ * example a {@link NewOrderSingleMessage} with the constant fields set, and
+ * the tags of the fields that vary. Constant body fields are encoded once;
+ * a variable field is re-encoded only when it is set, and the byte sum of
+ * every segment is cached so that the checksum of a frame is computed from
+ * the sums of its parts. Encode a template with
+ * {@link MessageEncoder#encode(MessageTemplate, PreEncodedHeader)}.
+ *
+ * The template takes ownership of the prototype, which must not be modified
+ * afterwards.
+ *
+ * Note: this class is <b>not thread-safe</b>!
+ */
+public class MessageTemplate {
+    private final AbstractMessage prototype;
+    private final Segment msgType;
+    private final Segment[] constants;
+    private final Slot[] slots;
+
+    public MessageTemplate(Message prototype, Tag<?>... variables) {
+        if (!(prototype instanceof AbstractMessage))
+            throw new IllegalArgumentException("Unsupported message: " + prototype.getClass().getName());
+        for (int i = 0; i < variables.length; i++) {
+            if (isVariable(variables[i].value(), Arrays.copyOf(variables, i)))
+                throw new IllegalArgumentException(variables[i].prettyName() + ": Tag multiple times");
+        }
+        this.prototype = (AbstractMessage) prototype;
+        this.msgType = new Segment(new StringField(MsgType.TAG, prototype.getMsgType()));
+        List<Field> constant = new ArrayList<Field>();
+        List<Segment> constants = new ArrayList<Segment>();
+        List<Slot> slots = new ArrayList<Slot>();
+        FieldLayout layout = this.prototype.layout();
+        for (int slot = 0; slot < layout.size(); slot++) {
+            Field field = this.prototype.lookup(layout.tag(slot));
+            if (!isVariable(layout.tag(slot), variables)) {
+                constant.add(field);
+                continue;
+            }
+            if (!(field instanceof AbstractField<?>))
+                throw new IllegalArgumentException(layout.tag(slot) + ": Repeating groups cannot be variable");
+            constants.add(new Segment(constant.toArray(new Field[constant.size()])));
+            constant.clear();
+            slots.add(new Slot((AbstractField<?>) field));
+        }
+        constants.add(new Segment(constant.toArray(new Field[constant.size()])));
+        if (slots.size() != variables.length)
+            throw new IllegalArgumentException("Tags not defined for this message: " + Arrays.toString(variables));
+        this.constants = constants.toArray(new Segment[constants.size()]);
+        this.slots = slots.toArray(new Slot[slots.size()]);
+    }
+
+    private static boolean isVariable(int tag, Tag<?>[] variables) {
+        for (Tag<?> variable : variables) {
+            if (variable.value() == tag)
+                return true;
+        }
+        return false;
+    }
+
+    public String getBeginString() {
+        return prototype.getBeginString();
+    }
+
+    public void setMsgSeqNum(int msgSeqNum) {
+        prototype.setMsgSeqNum(msgSeqNum);
+    }
+
+    public void setSendingTime(DateTime sendingTime) {
+        prototype.setSendingTime(sendingTime);
+    }
+
+    public void setSendingTime(long micros) {
+        prototype.setSendingTime(micros);
+    }
+
+    /**
+     * Sets a string field. A <code>null</code> value clears the field, which
+     * is then encoded like an unset field of the prototype.
+     */
+    public void setString(Tag<? extends StringField> tag, CharSequence value) {
+        slot(tag).setString(value);
+    }
+
+    public void setInt(Tag<IntegerField> tag, int value) {
+        Slot slot = slot(tag);
+        ((IntegerField) slot.field).setInt(value);
+        slot.update();
+    }
+
+    public void setDecimal(Tag<? extends FloatField> tag, long mantissa, int scale) {
+        Slot slot = slot(tag);
+        ((FloatField) slot.field).setDecimal(mantissa, scale);
+        slot.update();
+    }
+
+    public void setDouble(Tag<? extends FloatField> tag, double value) {
+        Slot slot = slot(tag);
+        ((FloatField) slot.field).setDouble(value);
+        slot.update();
+    }
+
+    public void setEpochMicros(Tag<UtcTimestampField> tag, long micros, int precision) {
+        Slot slot = slot(tag);
+        ((UtcTimestampField) slot.field).setEpochMicros(micros, precision);
+        slot.update();
+    }
+
+    @SuppressWarnings("unchecked") public <T extends Formattable> void setEnum(Tag<? extends EnumField<T>> tag, T value) {
+        Slot slot = slot(tag);
+        ((EnumField<T>) slot.field).setValue(value);
+        slot.update();
+    }
+
+    private Slot slot(Tag<?> tag) {
+        for (Slot slot : slots) {
+            if (slot.field.tag().value() == tag.value())
+                return slot;
+        }
+        throw new IllegalArgumentException(tag.prettyName() + ": Not a variable field");
+    }
+
+    /*
+     * Writes MsgType, the rest of the standard header and the body like
+     * AbstractMessage.encodeBody() and returns the byte sum of everything
+     * written. Only the header fields that follow the pre-encoded ones are
+     * summed byte by byte.
+     */
+    int encodeBody(ByteBuffer b, PreEncodedHeader preEncoded) {
+        int sum = msgType.put(b);
+        int start = b.position();
+        if (preEncoded != null) {
+            b.put(preEncoded.compIds());
+            sum += preEncoded.compIdsSum();
+            start = b.position();
+            prototype.header().encodeAfterCompIds(b);
+        } else {
+            prototype.header().encode(b);
+        }
+        sum = Checksums.sum(b, start, b.position(), sum);
+        for (int i = 0; i < slots.length; i++) {
+            sum += constants[i].put(b);
+            sum += slots[i].put(b);
+        }
+        return sum + constants[slots.length].put(b);
+    }
+
+    /*
+     * Encoded bytes that do not change between messages.
+     */
+    private static class Segment {
+        private final byte[] bytes;
+        private final int sum;
+
+        Segment(Field... fields) {
+            StringBuilder formatted = new StringBuilder();
+            for (Field field : fields)
+                formatted.append(field.format());
+            ByteBuffer b = ByteBuffer.allocate(formatted.length());
+            for (Field field : fields)
+                field.encode(b);
+            bytes = b.array();
+            sum = Checksums.sum(b, 0, bytes.length, 0);
+        }
+
+        int put(ByteBuffer b) {
+            b.put(bytes);
+            return sum;
+        }
+    }
+
+    /*
+     * A variable field and its encoded bytes, which are updated whenever the
+     * value is set.
+     */
+    private static class Slot {
+        private static final int INITIAL_CAPACITY = 32;
+
+        private final AbstractField<?> field;
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+        private int sum;
+
+        Slot(AbstractField<?> field) {
+            this.field = field;
+            update();
+        }
+
+        void update() {
+            for (;;) {
+                buffer.clear();
+                try {
+                    field.encode(buffer);
+                    break;
+                } catch (BufferOverflowException e) {
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                }
+            }
+            sum = Checksums.sum(buffer, 0, buffer.position(), 0);
+        }
+
+        void setString(CharSequence value) {
+            if (value == null) {
+                field.setValue(null);
+                update();
+                return;
+            }
+            byte[] prefix = field.tag().prefix();
+            int length = prefix.length + value.length() + 1;
+            if (length > buffer.capacity())
+                buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+            buffer.clear();
+            buffer.put(prefix);
+            for (int i = 0; i < value.length(); i++)
+                buffer.put((byte) value.charAt(i));
+            buffer.put((byte) Field.DELIMITER);
+            sum = Checksums.sum(buffer, 0, buffer.position(), 0);
+        }
+
+        int put(ByteBuffer b) {
+            b.put(buffer.array(), 0, buffer.position());
+            return sum;
+        }
+    }
+}
@@ -15,12 +15,14 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 import org.apache.commons.lang.CharUtils;
 
 /**
  * @author Pekka Enberg
  */
-public enum MsgTypeValue {
+public enum MsgTypeValue implements Formattable {
     HEARTBEAT("0") {
         @Override public Message newMessage(MessageHeader header) {
             return new HeartbeatMessage(header);
@@ -93,7 +95,9 @@ public enum MsgTypeValue {
         }
     };
 
-    private String value;
+    private static final ValueTable<MsgTypeValue> VALUES = new ValueTable<MsgTypeValue>(values());
+
+    private final String value;
 
     MsgTypeValue(String value) {
         this.value = value;
@@ -101,18 +105,45 @@ public enum MsgTypeValue {
 
     public abstract Message newMessage(MessageHeader header);
 
-    public String value() {
+    @Override public String value() {
         return value;
     }
 
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
+    }
+
     public static MsgTypeValue parse(String value) {
         if (!isValid(value))
             throw new InvalidMsgTypeException("MsgType(35): Invalid message type: " + value);
-        for (MsgTypeValue type : MsgTypeValue.values()) {
-            if (type.value.equals(value))
-                return type;
-        }
-        throw new UnsupportedMsgTypeException("MsgType(35): Unknown message type: " + value);
+        MsgTypeValue result = VALUES.lookup(value);
+        if (result == null)
+            throw new UnsupportedMsgTypeException("MsgType(35): Unknown message type: " + value);
+        return result;
+    }
+
+    /*
+     * Like parse(String) but reports an invalid or unsupported message type
+     * through the given error and returns null instead of throwing.
+     */
+    static MsgTypeValue parse(String value, ParseError error) {
+        if (!isValid(value)) {
+            error.set(ParseError.Problem.INVALID_MSG_TYPE);
+            return null;
+        }
+        MsgTypeValue result = VALUES.lookup(value);
+        if (result == null)
+            error.set(ParseError.Problem.UNSUPPORTED_MSG_TYPE);
+        return result;
+    }
+
+    /**
+     * Looks up the message type whose value is in range [offset, offset +
+     * length) of the buffer, or returns <code>null</code> if the value is not
+     * a supported message type.
+     */
+    public static MsgTypeValue lookup(ByteBuffer b, int offset, int length) {
+        return VALUES.lookup(b, offset, offset + length);
     }
 
     private static boolean isValid(String msgType) {
@@ -78,7 +78,7 @@ public class NewOrderSingleMessage extends AbstractMessage implements RequestMes
     }
 
     @Override public double getOrderQty() {
-        return getFloat(OrderQty.TAG);
+        return getDouble(OrderQty.TAG);
     }
 
     @Override public String getSymbol() {
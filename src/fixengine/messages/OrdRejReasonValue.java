@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -33,21 +35,27 @@ public enum OrdRejReasonValue implements Formattable {
     UNSUPPORTED_ORDER_CHARACTERISTIC(11),
     SURVEILLANCE_OPTION(12);
 
-    private int value;
+    private static final ValueTable<OrdRejReasonValue> VALUES = new ValueTable<OrdRejReasonValue>(values());
+
+    private final String value;
     
     OrdRejReasonValue(int value) {
-        this.value = value;
+        this.value = Integer.toString(value);
     }
 
     @Override public String value() {
-        return Integer.toString(value);
+        return value;
     }
 
     public static OrdRejReasonValue parse(int value) {
-        for (OrdRejReasonValue type : OrdRejReasonValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Integer.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static OrdRejReasonValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -35,21 +37,27 @@ public enum OrdStatusValue implements Formattable {
     ACCEPTED_FOR_BIDDING('D'),
     PENDING_REPLACE('E');
 
-    private char value;
+    private static final ValueTable<OrdStatusValue> VALUES = new ValueTable<OrdStatusValue>(values());
+
+    private final String value;
     
     OrdStatusValue(char value) {
-        this.value = value;
+        this.value = Character.toString(value);
     }
 
     @Override public String value() {
-        return Character.toString(value);
+        return value;
     }
 
     public static OrdStatusValue parse(char value) {
-        for (OrdStatusValue type : OrdStatusValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Character.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static OrdStatusValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
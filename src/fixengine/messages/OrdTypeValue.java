@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -43,21 +45,27 @@ public enum OrdTypeValue implements Formattable {
     NEXT_FUND_VALUATION_POINT('M'),
     PEGGED('P');
 
-    private char value;
+    private static final ValueTable<OrdTypeValue> VALUES = new ValueTable<OrdTypeValue>(values());
+
+    private final String value;
     
     OrdTypeValue(char value) {
-        this.value = value;
+        this.value = Character.toString(value);
     }
 
     @Override public String value() {
-        return Character.toString(value);
+        return value;
     }
 
     public static OrdTypeValue parse(char value) {
-        for (OrdTypeValue type : OrdTypeValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Character.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static OrdTypeValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
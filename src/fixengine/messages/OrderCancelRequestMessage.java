@@ -59,7 +59,7 @@ public class OrderCancelRequestMessage extends AbstractMessage implements Reques
     }
 
     @Override public double getOrderQty() {
-        return getFloat(OrderQty.TAG);
+        return getDouble(OrderQty.TAG);
     }
 
     @Override public String getOrigClOrdId() {
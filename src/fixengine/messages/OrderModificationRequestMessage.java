@@ -70,7 +70,7 @@ public class OrderModificationRequestMessage extends AbstractMessage implements
     }
 
     @Override public double getOrderQty() {
-        return getFloat(OrderQty.TAG);
+        return getDouble(OrderQty.TAG);
     }
 
     @Override public String getOrigClOrdId() {
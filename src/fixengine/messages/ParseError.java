@@ -0,0 +1,278 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import fixengine.tags.BodyLength;
+import fixengine.tags.CheckSum;
+import fixengine.tags.MsgSeqNum;
+import fixengine.tags.MsgType;
+
+/**
+ * Why a frame failed to parse. The parser fills in a caller-owned instance
+ * instead of throwing, so a rejected frame costs no allocation; the text
+ * for a reject or a log entry is built only when {@link #getText()} is
+ * called. An instance is overwritten by the next parse that uses it.
+ *
+ * Note: this class is <b>not thread-safe</b>!
+ */
+public class ParseError {
+    public enum Kind {
+        GARBLED,
+        INVALID_MSG_TYPE,
+        UNSUPPORTED_MSG_TYPE,
+        INVALID_MESSAGE
+    }
+
+    enum Problem {
+        GARBLED_VALUE_FORMAT(Kind.GARBLED, null),
+        GARBLED_EMPTY_TAG(Kind.GARBLED, null),
+        GARBLED_MISSING_TAG(Kind.GARBLED, null),
+        INVALID_BODY_LENGTH(Kind.GARBLED, null),
+        INVALID_CHECKSUM(Kind.GARBLED, null),
+        INVALID_CHECKSUM_LENGTH(Kind.GARBLED, null),
+        INVALID_MSG_TYPE(Kind.INVALID_MSG_TYPE, SessionRejectReasonValue.INVALID_MSG_TYPE),
+        UNSUPPORTED_MSG_TYPE(Kind.UNSUPPORTED_MSG_TYPE, null),
+        INVALID_TAG_NUMBER(Kind.INVALID_MESSAGE, SessionRejectReasonValue.INVALID_TAG_NUMBER),
+        FIELD_DELIMITER_IN_VALUE(Kind.INVALID_MESSAGE, SessionRejectReasonValue.FIELD_DELIMITER_IN_VALUE),
+        TAG_MULTIPLE_TIMES(Kind.INVALID_MESSAGE, SessionRejectReasonValue.TAG_MULTIPLE_TIMES),
+        INVALID_VALUE_FORMAT(Kind.INVALID_MESSAGE, SessionRejectReasonValue.INVALID_VALUE_FORMAT),
+        INVALID_VALUE(Kind.INVALID_MESSAGE, SessionRejectReasonValue.INVALID_VALUE),
+        EMPTY_TAG(Kind.INVALID_MESSAGE, SessionRejectReasonValue.EMPTY_TAG),
+        OUT_OF_ORDER_TAG(Kind.INVALID_MESSAGE, SessionRejectReasonValue.OUT_OF_ORDER_TAG),
+        INVALID_TAG(Kind.INVALID_MESSAGE, SessionRejectReasonValue.INVALID_TAG),
+        OUT_OF_ORDER_GROUP_FIELD(Kind.INVALID_MESSAGE, SessionRejectReasonValue.OUT_OF_ORDER_GROUP_FIELD),
+        NUM_IN_GROUP_MISMATCH(Kind.INVALID_MESSAGE, SessionRejectReasonValue.NUM_IN_GROUP_MISMATCH);
+
+        final Kind kind;
+        final SessionRejectReasonValue reason;
+
+        Problem(Kind kind, SessionRejectReasonValue reason) {
+            this.kind = kind;
+            this.reason = reason;
+        }
+    }
+
+    private static final ThreadLocal<ParseError> PER_THREAD = new ThreadLocal<ParseError>() {
+        @Override protected ParseError initialValue() {
+            return new ParseError();
+        }
+    };
+
+    private Problem problem;
+    private Field field;
+    private Tag<?> tagName;
+    private int tag;
+    private int expected;
+    private int actual;
+    private MessageHeader header;
+
+    /*
+     * The instance that the text-based Callback paths and the throwing parse
+     * methods of the calling thread fill in. Both are done with it before
+     * they return, so it is never seen by a caller.
+     */
+    static ParseError perThread() {
+        return PER_THREAD.get();
+    }
+
+    public Kind getKind() {
+        return problem.kind;
+    }
+
+    /**
+     * Returns the reason to put in a session-level Reject, or
+     * <code>null</code> if the frame is garbled or its message type is not
+     * supported.
+     */
+    public SessionRejectReasonValue getReason() {
+        return problem.reason;
+    }
+
+    /**
+     * Returns the number of the offending tag, or zero if the error is not
+     * about a single tag.
+     */
+    public int getTag() {
+        return tag;
+    }
+
+    public String getMsgType() {
+        return header != null ? header.getMsgType() : null;
+    }
+
+    /**
+     * Returns the MsgSeqNum of the frame, or zero if the header failed to
+     * parse before it.
+     */
+    public int getMsgSeqNum() {
+        if (header == null || !header.hasValue(MsgSeqNum.TAG))
+            return 0;
+        return header.getInt(MsgSeqNum.TAG);
+    }
+
+    public String getText() {
+        switch (problem) {
+        case GARBLED_VALUE_FORMAT:
+        case INVALID_VALUE_FORMAT:
+            return name() + ": Invalid value format";
+        case GARBLED_EMPTY_TAG:
+        case EMPTY_TAG:
+            return name() + ": Empty tag";
+        case GARBLED_MISSING_TAG:
+            return name() + ": is missing";
+        case INVALID_BODY_LENGTH:
+            return BodyLength.TAG.prettyName() + ": Invalid BodyLength";
+        case INVALID_CHECKSUM:
+            return CheckSum.TAG.prettyName() + ": Expected: " + expected + ", but was: " + actual;
+        case INVALID_CHECKSUM_LENGTH:
+            return CheckSum.TAG.prettyName() + ": CheckSum must have a length of three";
+        case INVALID_MSG_TYPE:
+            return MsgType.TAG.prettyName() + ": Invalid message type: " + getMsgType();
+        case UNSUPPORTED_MSG_TYPE:
+            return MsgType.TAG.prettyName() + ": Unknown message type: " + getMsgType();
+        case INVALID_TAG_NUMBER:
+            return tag != 0 ? "Invalid tag number: " + tag : "Invalid tag number";
+        case FIELD_DELIMITER_IN_VALUE:
+            return "Non-data value includes field delimiter (SOH character)";
+        case TAG_MULTIPLE_TIMES:
+            return name() + ": Tag multiple times";
+        case INVALID_VALUE:
+            return name() + ": Invalid value";
+        case OUT_OF_ORDER_TAG:
+            return name() + ": Out of order tag";
+        case INVALID_TAG:
+            return "Tag not defined for this message: " + tag;
+        case OUT_OF_ORDER_GROUP_FIELD:
+            return name() + ": Repeating group fields out of order";
+        case NUM_IN_GROUP_MISMATCH:
+            return name() + ": Incorrect NumInGroup count for repeating group. Expected: " + expected + ", but was: " + actual;
+        default:
+            throw new AssertionError(problem);
+        }
+    }
+
+    private String name() {
+        if (field != null)
+            return field.prettyName();
+        return tagName != null ? tagName.prettyName() : Integer.toString(tag);
+    }
+
+    /**
+     * Returns the exception that the throwing parse methods report this
+     * error with.
+     */
+    ParseException exception() {
+        String text = getText();
+        switch (problem) {
+        case GARBLED_VALUE_FORMAT:
+        case GARBLED_EMPTY_TAG:
+        case GARBLED_MISSING_TAG:
+            return new GarbledMessageException(text);
+        case INVALID_BODY_LENGTH:
+            return new InvalidBodyLengthException();
+        case INVALID_CHECKSUM:
+        case INVALID_CHECKSUM_LENGTH:
+            return new InvalidCheckSumException(text);
+        case INVALID_MSG_TYPE:
+            return new InvalidMsgTypeException(text);
+        case UNSUPPORTED_MSG_TYPE:
+            return new UnsupportedMsgTypeException(text);
+        case INVALID_TAG_NUMBER:
+            return new InvalidTagNumberException(text);
+        case FIELD_DELIMITER_IN_VALUE:
+            return new NonDataValueIncludesFieldDelimiterException(text);
+        case TAG_MULTIPLE_TIMES:
+            return new TagMultipleTimesException(text);
+        case INVALID_VALUE_FORMAT:
+            return new InvalidValueFormatException(text);
+        case INVALID_VALUE:
+            return new InvalidValueException(text);
+        case EMPTY_TAG:
+            return new EmptyTagException(text);
+        case OUT_OF_ORDER_TAG:
+            return new OutOfOrderTagException(text);
+        case INVALID_TAG:
+            return new InvalidTagException(text);
+        default:
+            return new ParseException(text, problem.reason);
+        }
+    }
+
+    /**
+     * Reports the error through the text-based callback.
+     */
+    void report(Parser.Callback callback) {
+        switch (problem.kind) {
+        case GARBLED:
+            callback.garbledMessage(getText());
+            break;
+        case INVALID_MSG_TYPE:
+            callback.invalidMsgType(getMsgType(), getMsgSeqNum());
+            break;
+        case UNSUPPORTED_MSG_TYPE:
+            callback.unsupportedMsgType(getMsgType(), getMsgSeqNum());
+            break;
+        default:
+            callback.invalidMessage(getMsgSeqNum(), getReason(), getText());
+            break;
+        }
+    }
+
+    void header(MessageHeader header) {
+        this.header = header;
+    }
+
+    /* The setters below return false so that callers can write
+     * "return error.xxx(...);". */
+
+    boolean set(Problem problem) {
+        return set(problem, null, null, 0);
+    }
+
+    boolean set(Problem problem, Field field, int tag) {
+        return set(problem, field, null, tag);
+    }
+
+    boolean set(Problem problem, Tag<?> tagName) {
+        return set(problem, null, tagName, tagName.value());
+    }
+
+    boolean set(Problem problem, int tag) {
+        return set(problem, null, null, tag);
+    }
+
+    boolean set(Problem problem, int expected, int actual) {
+        set(problem);
+        this.expected = expected;
+        this.actual = actual;
+        return false;
+    }
+
+    boolean numInGroupMismatch(Tag<?> count, int expected, int actual) {
+        set(Problem.NUM_IN_GROUP_MISMATCH, count);
+        this.expected = expected;
+        this.actual = actual;
+        return false;
+    }
+
+    private boolean set(Problem problem, Field field, Tag<?> tagName, int tag) {
+        this.problem = problem;
+        this.field = field;
+        this.tagName = tagName;
+        this.tag = tag;
+        return false;
+    }
+}
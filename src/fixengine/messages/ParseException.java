@@ -42,5 +42,14 @@ public class ParseException extends RuntimeException {
         return reason;
     }
 
+    /**
+     * Parse errors are reported to the counterparty, not debugged from stack
+     * traces, and a misbehaving counterparty can trigger them at line rate.
+     * Skip capturing the stack.
+     */
+    @Override public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
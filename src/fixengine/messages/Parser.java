@@ -17,8 +17,6 @@ package fixengine.messages;
 
 import java.nio.ByteBuffer;
 
-import fixengine.tags.MsgSeqNum;
-
 public class Parser {
     public interface Callback {
         void message(Message m);
@@ -28,28 +26,227 @@ public class Parser {
         void garbledMessage(String text);
     }
 
+    /**
+     * Receives parse results with errors described by a {@link ParseError}
+     * rather than by text, so that a rejected frame is handled without
+     * throwing or building strings.
+     */
+    public interface ErrorCallback {
+        void message(Message m);
+        void error(ParseError error);
+    }
+
     public static void parse(silvertip.Message m, Callback callback) {
         parse(m.toByteBuffer(), callback);
     }
 
-    private static void parse(ByteBuffer b, Callback callback) {
-        MessageHeader header = null;
-        try {
-            header = new MessageHeader();
-            header.parse(b);
-            header.validate();
-            Message msg = header.newMessage();
-            msg.parse(b);
-            msg.validate();
+    /**
+     * Parses a single frame that starts at the buffer's position and ends at
+     * its limit, for example one handed out by
+     * {@link fixengine.io.FrameAssembler}.
+     */
+    public static void parse(ByteBuffer b, Callback callback) {
+        parse(b, null, null, null, callback, false, false);
+    }
+
+    /**
+     * Parses the message body lazily: field values are decoded only when
+     * they are first accessed. See {@link FieldContainer#parseLazily(ByteBuffer)}.
+     */
+    public static void parseLazily(silvertip.Message m, Callback callback) {
+        parse(m.toByteBuffer(), null, null, null, callback, true, false);
+    }
+
+    /**
+     * Parses the frame into a message acquired from <code>pool</code>. The
+     * message passed to {@link Callback#message(Message)} belongs to the
+     * callback, which should release it to the pool once it is done with
+     * it. Messages that fail to parse are released by the parser.
+     */
+    public static void parse(ByteBuffer b, MessagePool pool, Callback callback) {
+        parse(b, pool, null, null, callback, false, false);
+    }
+
+    /**
+     * Parses the frame like {@link #parse(ByteBuffer, MessagePool, Callback)}
+     * but takes the message type from <code>preParsed</code>, which must
+     * have been parsed from the same frame, instead of scanning the header
+     * again.
+     */
+    public static void parse(ByteBuffer b, PreParsedHeader preParsed, MessagePool pool, Callback callback) {
+        parse(b, acquire(preParsed, pool), pool, null, null, callback, false, false);
+    }
+
+    /**
+     * Parses the frame like {@link #parse(ByteBuffer, MessagePool, Callback)}
+     * but captures user-defined tags and tags that are not defined for the
+     * message type instead of rejecting the message; see
+     * {@link AbstractMessage#getUnknownFields()}. Tags that belong to the
+     * standard header or trailer are still rejected when out of order.
+     * <code>pool</code> may be <code>null</code>.
+     */
+    public static void parseCapturingUnknownFields(ByteBuffer b, MessagePool pool, Callback callback) {
+        parse(b, pool, null, null, callback, false, true);
+    }
+
+    /**
+     * Parses the frame like
+     * {@link #parseCapturingUnknownFields(ByteBuffer, MessagePool, Callback)}
+     * with the message type taken from <code>preParsed</code>; see
+     * {@link #parse(ByteBuffer, PreParsedHeader, MessagePool, Callback)}.
+     */
+    public static void parseCapturingUnknownFields(ByteBuffer b, PreParsedHeader preParsed, MessagePool pool, Callback callback) {
+        parse(b, acquire(preParsed, pool), pool, null, null, callback, false, true);
+    }
+
+    /**
+     * Parses the frame like
+     * {@link #parse(ByteBuffer, PreParsedHeader, MessagePool, Callback)} but
+     * reports an error by filling in <code>error</code>, which the caller
+     * allocates once and reuses, and passing it to the callback.
+     */
+    public static void parse(ByteBuffer b, PreParsedHeader preParsed, MessagePool pool, ParseError error, ErrorCallback callback) {
+        parse(b, acquire(preParsed, pool), pool, null, error, callback, false);
+    }
+
+    /**
+     * Parses the frame like
+     * {@link #parseCapturingUnknownFields(ByteBuffer, PreParsedHeader, MessagePool, Callback)}
+     * but reports an error through <code>error</code>; see
+     * {@link #parse(ByteBuffer, PreParsedHeader, MessagePool, ParseError, ErrorCallback)}.
+     */
+    public static void parseCapturingUnknownFields(ByteBuffer b, PreParsedHeader preParsed, MessagePool pool, ParseError error, ErrorCallback callback) {
+        parse(b, acquire(preParsed, pool), pool, null, error, callback, true);
+    }
+
+    /**
+     * Parses the frame into <code>reuse</code> if the frame has the same
+     * message type, resetting it first, or into a new message otherwise.
+     * A caller that keeps one message per type it receives can parse valid
+     * frames without allocating, but an error is reported with text; use
+     * {@link #parse(ByteBuffer, Message, ParseError, ErrorCallback)} to
+     * reject frames without allocating as well. The message passed to
+     * {@link Callback#message(Message)} is only valid until
+     * <code>reuse</code> is parsed into again.
+     */
+    public static void parse(ByteBuffer b, Message reuse, Callback callback) {
+        parse(b, null, recycle(b, reuse), null, callback, false, false);
+    }
+
+    /**
+     * Parses the frame into <code>reuse</code> like
+     * {@link #parse(ByteBuffer, Message, Callback)} but reports an error
+     * through <code>error</code>, which the caller allocates once and
+     * reuses; see
+     * {@link #parse(ByteBuffer, PreParsedHeader, MessagePool, ParseError, ErrorCallback)}.
+     */
+    public static void parse(ByteBuffer b, Message reuse, ParseError error, ErrorCallback callback) {
+        parse(b, null, null, recycle(b, reuse), error, callback, false);
+    }
+
+    private static AbstractMessage recycle(ByteBuffer b, Message reuse) {
+        if (!(reuse instanceof AbstractMessage) || !hasMsgType(b, reuse.getMsgType()))
+            return null;
+        AbstractMessage recycled = (AbstractMessage) reuse;
+        recycled.reset();
+        return recycled;
+    }
+
+    /**
+     * Parses the frame but decodes only the body fields that are registered
+     * in <code>interests</code> for its message type. See {@link InterestSet}.
+     */
+    public static void parse(ByteBuffer b, InterestSet interests, Callback callback) {
+        parse(b, null, null, interests, callback, false, false);
+    }
+
+    /*
+     * Returns true if the frame at the buffer's position has the given
+     * MsgType, which is always the third field.
+     */
+    private static boolean hasMsgType(ByteBuffer b, String msgType) {
+        int i = b.position();
+        for (int delimiters = 0; delimiters < 2; i++) {
+            if (i == b.limit())
+                return false;
+            if (b.get(i) == Field.DELIMITER)
+                delimiters++;
+        }
+        if (i + 3 + msgType.length() >= b.limit())
+            return false;
+        if (b.get(i++) != '3' || b.get(i++) != '5' || b.get(i++) != '=')
+            return false;
+        for (int j = 0; j < msgType.length(); j++) {
+            if (b.get(i++) != msgType.charAt(j))
+                return false;
+        }
+        return b.get(i) == Field.DELIMITER;
+    }
+
+    private static long[] interest(InterestSet interests, MessageHeader header, AbstractMessage msg) {
+        if (interests == null)
+            return null;
+        return interests.slots(MsgTypeValue.parse(header.getMsgType()), msg.layout());
+    }
+
+    private static AbstractMessage acquire(PreParsedHeader preParsed, MessagePool pool) {
+        if (pool == null || preParsed.getMsgType() == null)
+            return null;
+        return (AbstractMessage) pool.acquire(preParsed.getMsgType());
+    }
+
+    private static void parse(ByteBuffer b, MessagePool pool, AbstractMessage reuse, InterestSet interests, Callback callback, boolean lazy, boolean unknownFields) {
+        parse(b, pool != null ? pool.acquire(b) : null, pool, reuse, interests, callback, lazy, unknownFields);
+    }
+
+    private static void parse(ByteBuffer b, AbstractMessage pooled, MessagePool pool, AbstractMessage reuse, InterestSet interests, Callback callback, boolean lazy, boolean unknownFields) {
+        ParseError error = ParseError.perThread();
+        Message msg = parse(b, pooled, reuse, interests, lazy, unknownFields, error);
+        if (msg != null) {
+            error.header(null);
             callback.message(msg);
-        } catch (InvalidMsgTypeException e) {
-            callback.invalidMsgType(header.getMsgType(), header.getInteger(MsgSeqNum.TAG));
-        } catch (UnsupportedMsgTypeException e) {
-            callback.unsupportedMsgType(header.getMsgType(), header.getInteger(MsgSeqNum.TAG));
-        } catch (GarbledMessageException e) {
-            callback.garbledMessage(e.getMessage());
-        } catch (ParseException e) {
-            callback.invalidMessage(header.getInteger(MsgSeqNum.TAG), e.getReason(), e.getMessage());
+            return;
         }
+        /* The arguments of the callback are taken from the error before it
+         * is called, so the callback may parse on this thread again. */
+        error.report(callback);
+        error.header(null);
+        if (pooled != null)
+            pool.release(pooled);
+    }
+
+    private static void parse(ByteBuffer b, AbstractMessage pooled, MessagePool pool, AbstractMessage reuse, ParseError error, ErrorCallback callback, boolean unknownFields) {
+        Message msg = parse(b, pooled, reuse, null, false, unknownFields, error);
+        if (msg != null) {
+            callback.message(msg);
+            return;
+        }
+        callback.error(error);
+        if (pooled != null)
+            pool.release(pooled);
+    }
+
+    /*
+     * Returns the parsed message, or null after filling in the error. The
+     * header stays attached to the error so that the callback can read the
+     * message type and sequence number; a pooled message is released only
+     * after the callback has seen the error.
+     */
+    private static Message parse(ByteBuffer b, AbstractMessage pooled, AbstractMessage reuse, InterestSet interests, boolean lazy, boolean unknownFields, ParseError error) {
+        AbstractMessage recycled = pooled != null ? pooled : reuse;
+        MessageHeader header = recycled != null ? recycled.header() : new MessageHeader();
+        error.header(header);
+        if (!header.parse(b, error) || !header.validate(error))
+            return null;
+        AbstractMessage msg = recycled != null ? recycled : (AbstractMessage) header.newMessage(error);
+        if (msg == null)
+            return null;
+        if (unknownFields)
+            msg.captureUnknownFields();
+        long[] interest = interest(interests, header, msg);
+        boolean parsed = interest != null ? msg.parse(b, interest, error) : msg.parse(b, lazy, error);
+        if (!parsed || !msg.validate(error))
+            return null;
+        return msg;
     }
-}
\ No newline at end of file
+}
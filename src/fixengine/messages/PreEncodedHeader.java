@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import fixengine.Config;
+import fixengine.tags.BeginString;
+import fixengine.tags.SenderCompID;
+import fixengine.tags.TargetCompID;
+
+/**
+ * The standard header fields that stay the same for every message a session
+ * sends, encoded once together with their byte sums. Pass it to
+ * {@link MessageEncoder#encode(Message, PreEncodedHeader)} to splice these
+ * bytes into the frame instead of setting and formatting BeginString,
+ * SenderCompID and TargetCompID for each message.
+ *
+ * Instances are immutable.
+ */
+public class PreEncodedHeader {
+    private final byte[] beginString;
+    private final int beginStringSum;
+    private final byte[] compIds;
+    private final int compIdsSum;
+    private final String beginStringValue;
+    private final String senderCompId;
+    private final String targetCompId;
+
+    public PreEncodedHeader(Config config) {
+        this(config.getVersion().value(), config.getSenderCompId(), config.getTargetCompId());
+    }
+
+    public PreEncodedHeader(String beginString, String senderCompId, String targetCompId) {
+        this.beginStringValue = beginString;
+        this.senderCompId = senderCompId;
+        this.targetCompId = targetCompId;
+        this.beginString = encode(new StringField(BeginString.TAG, beginString));
+        this.beginStringSum = sum(this.beginString);
+        this.compIds = encode(new StringField(SenderCompID.TAG, senderCompId), new StringField(TargetCompID.TAG, targetCompId));
+        this.compIdsSum = sum(compIds);
+    }
+
+    /**
+     * Returns <code>true</code> if the header was encoded from the current
+     * values of <code>config</code>. Values are compared by identity, which
+     * is enough to notice that a setter of the configuration was called.
+     */
+    public boolean isFor(Config config) {
+        return config.getVersion().value() == beginStringValue
+            && config.getSenderCompId() == senderCompId
+            && config.getTargetCompId() == targetCompId;
+    }
+
+    private static byte[] encode(Field... fields) {
+        int length = 0;
+        for (Field field : fields)
+            length += field.format().length();
+        ByteBuffer b = ByteBuffer.allocate(length);
+        for (Field field : fields)
+            field.encode(b);
+        return b.array();
+    }
+
+    private static int sum(byte[] bytes) {
+        return Checksums.sum(ByteBuffer.wrap(bytes), 0, bytes.length, 0);
+    }
+
+    /*
+     * The encoded BeginString field, which starts the frame.
+     */
+    byte[] beginString() {
+        return beginString;
+    }
+
+    int beginStringSum() {
+        return beginStringSum;
+    }
+
+    /*
+     * The encoded SenderCompID and TargetCompID fields, which follow MsgType.
+     */
+    byte[] compIds() {
+        return compIds;
+    }
+
+    int compIdsSum() {
+        return compIdsSum;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import lang.ByteBuffers;
+import lang.Integers;
+import fixengine.tags.BeginString;
+import fixengine.tags.BodyLength;
+import fixengine.tags.MsgSeqNum;
+import fixengine.tags.MsgType;
+import fixengine.tags.PossDupFlag;
+import fixengine.tags.SenderCompID;
+import fixengine.tags.TargetCompID;
+
+/**
+ * The routing-relevant part of a message's standard header, scanned without
+ * decoding the body or verifying the checksum. Sessions use it to drop or
+ * route frames before paying for a full parse; a frame that passes the
+ * pre-parse still has to go through {@link Parser}.
+ *
+ * Instances are reusable and parsing does not allocate.
+ */
+public class PreParsedHeader {
+    private ByteBuffer buffer;
+    private MsgTypeValue msgType;
+    private int msgTypeOffset;
+    private int msgTypeLength;
+    private int msgSeqNum;
+    private boolean hasMsgSeqNum;
+    private boolean possDupFlag;
+    private int senderCompIdOffset;
+    private int senderCompIdLength;
+    private int targetCompIdOffset;
+    private int targetCompIdLength;
+    private int bodyOffset;
+
+    /**
+     * Scans the header of the frame that starts at the buffer's position.
+     * Returns <code>false</code> if the frame does not start with a well-formed
+     * BeginString, BodyLength and MsgType. The buffer's position is not
+     * changed.
+     */
+    public boolean parse(ByteBuffer b) {
+        buffer = b;
+        msgType = null;
+        hasMsgSeqNum = possDupFlag = false;
+        senderCompIdOffset = targetCompIdOffset = -1;
+        int position = b.position();
+        int limit = b.limit();
+        for (int count = 0; position < limit; count++) {
+            int fieldStart = position;
+            int tag = 0;
+            for (;;) {
+                if (position == limit)
+                    return false;
+                int ch = b.get(position++);
+                if (ch == '=')
+                    break;
+                if (ch < '0' || ch > '9' || tag > 100000)
+                    return false;
+                tag = tag * 10 + (ch - '0');
+            }
+            int valueStart = position;
+            int valueEnd = ByteBuffers.indexOf(b, valueStart, limit, (byte) Field.DELIMITER);
+            if (valueEnd < 0)
+                return false;
+            position = valueEnd + 1;
+            if (count == 0) {
+                if (tag != BeginString.TAG.value())
+                    return false;
+            } else if (count == 1) {
+                if (tag != BodyLength.TAG.value())
+                    return false;
+            } else if (count == 2) {
+                if (tag != MsgType.TAG.value())
+                    return false;
+                msgTypeOffset = valueStart;
+                msgTypeLength = valueEnd - valueStart;
+                msgType = MsgTypeValue.lookup(b, valueStart, msgTypeLength);
+            } else if (!MessageHeader.isHeaderTag(tag)) {
+                bodyOffset = fieldStart;
+                return true;
+            } else if (tag == SenderCompID.TAG.value()) {
+                senderCompIdOffset = valueStart;
+                senderCompIdLength = valueEnd - valueStart;
+            } else if (tag == TargetCompID.TAG.value()) {
+                targetCompIdOffset = valueStart;
+                targetCompIdLength = valueEnd - valueStart;
+            } else if (tag == MsgSeqNum.TAG.value()) {
+                long result = Integers.tryParseInt(b, valueStart, valueEnd);
+                hasMsgSeqNum = result != Integers.INVALID;
+                if (hasMsgSeqNum)
+                    msgSeqNum = (int) result;
+            } else if (tag == PossDupFlag.TAG.value()) {
+                possDupFlag = valueEnd - valueStart == 1 && b.get(valueStart) == 'Y';
+            }
+        }
+        bodyOffset = limit;
+        return true;
+    }
+
+    /**
+     * Returns the message type or <code>null</code> if the message type is
+     * not supported.
+     */
+    public MsgTypeValue getMsgType() {
+        return msgType;
+    }
+
+    public String getMsgTypeString() {
+        return toString(msgTypeOffset, msgTypeLength);
+    }
+
+    public boolean hasMsgSeqNum() {
+        return hasMsgSeqNum;
+    }
+
+    public int getMsgSeqNum() {
+        return msgSeqNum;
+    }
+
+    public boolean getPossDupFlag() {
+        return possDupFlag;
+    }
+
+    public boolean isSenderCompId(String senderCompId) {
+        return equals(senderCompIdOffset, senderCompIdLength, senderCompId);
+    }
+
+    public boolean isTargetCompId(String targetCompId) {
+        return equals(targetCompIdOffset, targetCompIdLength, targetCompId);
+    }
+
+    public String getSenderCompId() {
+        return toString(senderCompIdOffset, senderCompIdLength);
+    }
+
+    public String getTargetCompId() {
+        return toString(targetCompIdOffset, targetCompIdLength);
+    }
+
+    /**
+     * Returns the absolute buffer position of the first field that is not
+     * part of the standard header.
+     */
+    public int getBodyOffset() {
+        return bodyOffset;
+    }
+
+    private boolean equals(int offset, int length, String s) {
+        if (offset < 0 || s == null || s.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != s.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private String toString(int offset, int length) {
+        if (offset < 0)
+            return null;
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+            chars[i] = (char) buffer.get(offset + i);
+        return new String(chars);
+    }
+}
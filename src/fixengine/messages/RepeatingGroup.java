@@ -18,13 +18,31 @@ package fixengine.messages;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lang.Integers;
 
 public abstract class RepeatingGroup implements Field {
+    /*
+     * One never-parsed instance per group class. Its layout is the set of
+     * tags that belong to an instance, so parsing can tell where the group
+     * ends without creating instances speculatively.
+     */
+    private static final ConcurrentMap<Class<?>, RepeatingGroupInstance> TEMPLATES = new ConcurrentHashMap<Class<?>, RepeatingGroupInstance>();
+
     private final List<RepeatingGroupInstance> instances = new ArrayList<RepeatingGroupInstance>();
     private final Tag<IntegerField> count;
+    private final Required required;
+    private boolean parsed;
 
     public RepeatingGroup(Tag<IntegerField> count) {
+        this(count, Required.NO);
+    }
+
+    public RepeatingGroup(Tag<IntegerField> count, Required required) {
         this.count = count;
+        this.required = required;
     }
 
     public Tag<?> countTag() {
@@ -33,24 +51,73 @@ public abstract class RepeatingGroup implements Field {
 
     public abstract RepeatingGroupInstance newInstance();
 
+    public List<RepeatingGroupInstance> instances() {
+        return instances;
+    }
+
     @Override public void parse(ByteBuffer b) {
+        ParseError error = ParseError.perThread();
+        if (!parse(b, error))
+            throw error.exception();
+    }
+
+    @Override public boolean parse(ByteBuffer b, ParseError error) {
         IntegerField field = count.newField(Required.NO);
-        field.parse(b);
+        if (!field.parse(b, error))
+            return false;
+        if (!field.isFormatValid())
+            return error.set(ParseError.Problem.INVALID_VALUE_FORMAT, field, count.value());
+        parsed = true;
+        FieldLayout members = template().layout();
+        int delimiter = members.tag(0);
         while (b.hasRemaining()) {
-            try {
-                int tag = Tag.peekTag(b);
-                RepeatingGroupInstance instance = newInstance();
-                if (instance.lookup(tag) == null)
-                    break;
-                instances.add(instance);
-                instance.parse(b);
-            } catch (TagMultipleTimesException e) {
-                b.reset();
-                continue;
+            int tag = Tag.peekTagNumber(b, error);
+            if (tag < 0)
+                return false;
+            if (tag != delimiter) {
+                if (members.slot(tag) >= 0)
+                    return error.set(ParseError.Problem.OUT_OF_ORDER_GROUP_FIELD, template().lookup(tag), tag);
+                break;
             }
+            RepeatingGroupInstance instance = newInstance();
+            instances.add(instance);
+            if (!instance.parse(b, error))
+                return false;
+        }
+        if (instances.size() != field.intValue())
+            return error.numInGroupMismatch(count, field.intValue(), instances.size());
+        return true;
+    }
+
+    private RepeatingGroupInstance template() {
+        RepeatingGroupInstance result = TEMPLATES.get(getClass());
+        if (result == null) {
+            result = newInstance();
+            TEMPLATES.putIfAbsent(getClass(), result);
+        }
+        return result;
+    }
+
+    boolean hasSameValues(RepeatingGroup other) {
+        if (instances.size() != other.instances.size())
+            return false;
+        for (int i = 0; i < instances.size(); i++) {
+            if (!instances.get(i).hasSameValues(other.instances.get(i)))
+                return false;
         }
-        if (instances.size() != field.getValue())
-            throw new ParseException(count.prettyName() + ": Incorrect NumInGroup count for repeating group. Expected: " + field.getValue() + ", but was: " + instances.size(), SessionRejectReasonValue.NUM_IN_GROUP_MISMATCH);
+        return true;
+    }
+
+    int valuesHashCode() {
+        int result = instances.size();
+        for (RepeatingGroupInstance instance : instances)
+            result = 31 * result + instance.valuesHashCode();
+        return result;
+    }
+
+    @Override public void reset() {
+        instances.clear();
+        parsed = false;
     }
 
     @Override public String format() {
@@ -62,8 +129,21 @@ public abstract class RepeatingGroup implements Field {
         return result.toString();
     }
 
+    @Override public void encode(ByteBuffer b) {
+        b.put(count.prefix());
+        Integers.put(b, instances.size());
+        b.put((byte) DELIMITER);
+        for (RepeatingGroupInstance instance : instances) {
+            instance.encode(b);
+        }
+    }
+
+    public boolean isRequired() {
+        return required.isRequired();
+    }
+
     @Override public boolean hasValue() {
-        throw new UnsupportedOperationException();
+        return parsed || !instances.isEmpty();
     }
 
     @Override public boolean isEmpty() {
@@ -75,7 +155,7 @@ public abstract class RepeatingGroup implements Field {
     }
 
     @Override public boolean isMissing() {
-        throw new UnsupportedOperationException();
+        return isRequired() && !hasValue();
     }
 
     @Override public boolean isConditional() {
@@ -83,7 +163,7 @@ public abstract class RepeatingGroup implements Field {
     }
 
     @Override public boolean isParsed() {
-        throw new UnsupportedOperationException();
+        return parsed;
     }
 
     @Override public boolean isValueValid() {
@@ -91,7 +171,7 @@ public abstract class RepeatingGroup implements Field {
     }
 
     @Override public String prettyName() {
-        throw new UnsupportedOperationException();
+        return count.prettyName();
     }
 
     @Override public void setRequired(Required required) {
@@ -10,10 +10,22 @@ public class RepeatingGroupInstance extends FieldContainer implements Field {
     }
 
     @Override public void parse(ByteBuffer b) {
-        int tag = Tag.peekTag(b);
+        ParseError error = ParseError.perThread();
+        if (!parse(b, error))
+            throw error.exception();
+    }
+
+    @Override public boolean parse(ByteBuffer b, ParseError error) {
+        int tag = Tag.peekTagNumber(b, error);
+        if (tag < 0)
+            return false;
         if (tag != delimiter.value())
-            throw new ParseException(lookup(tag).prettyName() + ": Repeating group fields out of order", SessionRejectReasonValue.OUT_OF_ORDER_GROUP_FIELD);
-        super.parse(b);
+            return error.set(ParseError.Problem.OUT_OF_ORDER_GROUP_FIELD, lookup(tag), tag);
+        return parse(b, false, error);
+    }
+
+    @Override protected boolean stopsAtRepeatedTag() {
+        return true;
     }
 
     @Override public String format() {
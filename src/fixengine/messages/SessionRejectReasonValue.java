@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -73,21 +75,27 @@ public enum SessionRejectReasonValue implements Formattable {
     /** Non "data" value includes field delimiter (SOH character).  */
     FIELD_DELIMITER_IN_VALUE(17);
 
-    private final int value;
+    private static final ValueTable<SessionRejectReasonValue> VALUES = new ValueTable<SessionRejectReasonValue>(values());
+
+    private final String value;
 
     SessionRejectReasonValue(int value) {
-        this.value = value;
+        this.value = Integer.toString(value);
     }
 
     @Override public String value() {
-        return Integer.toString(value);
+        return value;
     }
 
     public static SessionRejectReasonValue parse(int value) {
-        for (SessionRejectReasonValue type : SessionRejectReasonValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Integer.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static SessionRejectReasonValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
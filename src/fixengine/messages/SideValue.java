@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -32,21 +34,27 @@ public enum SideValue implements Formattable {
     AS_DEFINED('B'),    /* for multileg */
     OPPOSITE('C');      /* for multileg */
 
-    private char value;
+    private static final ValueTable<SideValue> VALUES = new ValueTable<SideValue>(values());
+
+    private final String value;
     
     SideValue(char value) {
-        this.value = value;
+        this.value = Character.toString(value);
     }
 
     @Override public String value() {
-        return Character.toString(value);
+        return value;
     }
 
     public static SideValue parse(char value) {
-        for (SideValue type : SideValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Character.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static SideValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
@@ -15,10 +15,22 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
+import lang.AsciiSequence;
+
 /**
  * @author Pekka Enberg 
  */
 public class StringField extends AbstractField<String> {
+    /*
+     * Bytes of a value parsed from a buffer. The String value is created
+     * from them only when it is asked for. Transient, because equals()
+     * compares by reflection and must only see the value.
+     */
+    private transient AsciiSequence sequence;
+    private transient boolean hasSequence;
+
     public StringField(Tag<? extends StringField> tag) {
         this(tag, Required.YES);
     }
@@ -37,11 +49,71 @@ public class StringField extends AbstractField<String> {
 
     @Override
     public void parse(String value) {
-        this.value = value;
+        setValue(value);
+    }
+
+    @Override protected void parse(ByteBuffer b, int start, int end) {
+        if (sequence == null)
+            sequence = new AsciiSequence(end - start);
+        sequence.copy(b, start, end);
+        value = null;
+        hasSequence = true;
+    }
+
+    @Override public void setValue(String value) {
+        super.setValue(value);
+        hasSequence = false;
+    }
+
+    @Override public String getValue() {
+        if (value == null && hasSequence)
+            value = sequence.toString();
+        return value;
+    }
+
+    /**
+     * Returns the value without creating a <code>String</code> if it was
+     * parsed from a buffer, or <code>null</code> if there is no value. The
+     * returned sequence is only valid until this field is parsed again or
+     * reset.
+     */
+    public CharSequence getCharSequence() {
+        if (value == null && hasSequence)
+            return sequence;
+        return value;
+    }
+
+    @Override protected void encodeValue(ByteBuffer b) {
+        CharSequence value = getCharSequence();
+        for (int i = 0; i < value.length(); i++)
+            b.put((byte) value.charAt(i));
+    }
+
+    @Override public boolean hasValue() {
+        return value != null || hasSequence;
+    }
+
+    @Override protected AbstractField<String> copy() {
+        StringField result = (StringField) super.copy();
+        result.sequence = null;
+        result.hasSequence = false;
+        return result;
     }
 
     @Override
     protected final String value() {
-        return value;
+        return getValue();
+    }
+
+    @Override public boolean equals(Object obj) {
+        getValue();
+        if (obj instanceof StringField)
+            ((StringField) obj).getValue();
+        return super.equals(obj);
+    }
+
+    @Override public int hashCode() {
+        getValue();
+        return super.hashCode();
     }
 }
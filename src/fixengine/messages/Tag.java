@@ -24,8 +24,14 @@ import lang.Objects;
  * @author Pekka Enberg 
  */
 public class Tag<T extends Field> {
+    private static final int MAX_TAG = Integer.MAX_VALUE / 10 - 9;
+    private static final int INVALID_TAG_NUMBER = -1;
+    private static final int DELIMITER_IN_VALUE = -2;
+
     private Class<T> type;
     private int value;
+    private transient volatile T prototype;
+    private transient byte[] prefix;
 
     public Tag(int value, Class<T> type) {
         this.value = value;
@@ -52,12 +58,39 @@ public class Tag<T extends Field> {
         return value;
     }
 
-    public T newField(Required required) {
-        T field = Classes.newInstance(type, Tag.class, this);
+    /**
+     * Returns the encoded <code>"&lt;tag&gt;="</code> prefix of the tag's
+     * fields. The array is shared and must not be modified.
+     */
+    public byte[] prefix() {
+        byte[] result = prefix;
+        if (result == null) {
+            String s = value + "=";
+            result = new byte[s.length()];
+            for (int i = 0; i < result.length; i++)
+                result[i] = (byte) s.charAt(i);
+            prefix = result;
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked") public T newField(Required required) {
+        T field = prototype();
+        if (field instanceof AbstractField<?>)
+            field = (T) ((AbstractField<?>) field).copy();
+        else
+            field = Classes.newInstance(type, Tag.class, this);
         field.setRequired(required);
         return field;
     }
 
+    private T prototype() {
+        T result = prototype;
+        if (result == null)
+            prototype = result = Classes.newInstance(type, Tag.class, this);
+        return result;
+    }
+
     public int parse(ByteBuffer b) throws UnexpectedTagException {
         int tag = parseTag(b);
         if (value != tag)
@@ -66,25 +99,78 @@ public class Tag<T extends Field> {
     }
 
     public static int peekTag(ByteBuffer b) {
-        b.mark();
+        int position = b.position();
         int tag = Tag.parseTag(b);
-        b.reset();
+        b.position(position);
         return tag;
     }
 
     public static int parseTag(ByteBuffer b) {
-        StringBuilder result = new StringBuilder();
+        int tag = parseTagNumber(b);
+        if (isUserDefined(tag))
+            throw new InvalidTagNumberException("Invalid tag number: " + tag);
+        return tag;
+    }
+
+    static int peekTagNumber(ByteBuffer b) {
+        int position = b.position();
+        int tag = parseTagNumber(b);
+        b.position(position);
+        return tag;
+    }
+
+    static int peekTagNumber(ByteBuffer b, ParseError error) {
+        int position = b.position();
+        int tag = parseTagNumber(b, error);
+        b.position(position);
+        return tag;
+    }
+
+    /*
+     * Like parseTag() but accepts user-defined tags, which are rejected or
+     * captured by the message.
+     */
+    static int parseTagNumber(ByteBuffer b) {
+        int tag = scanTagNumber(b);
+        if (tag == DELIMITER_IN_VALUE)
+            throw new NonDataValueIncludesFieldDelimiterException("Non-data value includes field delimiter (SOH character)");
+        if (tag == INVALID_TAG_NUMBER)
+            throw new InvalidTagNumberException("Invalid tag number");
+        return tag;
+    }
+
+    /*
+     * Like parseTagNumber() but reports errors through the given error and
+     * returns a negative value instead of throwing.
+     */
+    static int parseTagNumber(ByteBuffer b, ParseError error) {
+        int tag = scanTagNumber(b);
+        if (tag == DELIMITER_IN_VALUE)
+            error.set(ParseError.Problem.FIELD_DELIMITER_IN_VALUE);
+        else if (tag == INVALID_TAG_NUMBER)
+            error.set(ParseError.Problem.INVALID_TAG_NUMBER);
+        return tag;
+    }
+
+    private static int scanTagNumber(ByteBuffer b) {
+        int tag = 0;
+        int digits = 0;
         for (;;) {
+            if (!b.hasRemaining())
+                return INVALID_TAG_NUMBER;
             int ch = b.get();
             if (ch == '=')
                 break;
             else if (ch == Field.DELIMITER)
-                throw new NonDataValueIncludesFieldDelimiterException("Non-data value includes field delimiter (SOH character)");
-            result.append((char) ch);
+                return DELIMITER_IN_VALUE;
+            else if (ch < '0' || ch > '9')
+                return INVALID_TAG_NUMBER;
+            if (tag < MAX_TAG)
+                tag = tag * 10 + (ch - '0');
+            digits++;
         }
-        int tag = Integer.parseInt(result.toString());
-        if (isUserDefined(tag))
-            throw new InvalidTagNumberException("Invalid tag number: " + tag);
+        if (digits == 0)
+            return INVALID_TAG_NUMBER;
         return tag;
     }
 
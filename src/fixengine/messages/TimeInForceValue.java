@@ -15,6 +15,8 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -28,21 +30,27 @@ public enum TimeInForceValue implements Formattable {
     GOOD_TILL_DATE('6'),
     AT_THE_CLOSE('7');
 
-    private char value;
+    private static final ValueTable<TimeInForceValue> VALUES = new ValueTable<TimeInForceValue>(values());
+
+    private final String value;
     
     TimeInForceValue(char value) {
-        this.value = value;
+        this.value = Character.toString(value);
     }
 
     public String value() {
-        return Character.toString(value);
+        return value;
     }
 
     public static TimeInForceValue parse(char value) {
-        for (TimeInForceValue type : TimeInForceValue.values()) {
-            if (type.value == value)
-                return type;
-        }
-        throw new InvalidValueForTagException(Character.toString(value));
+        return VALUES.parse(value);
+    }
+
+    public static TimeInForceValue lookup(ByteBuffer b, int start, int end) {
+        return VALUES.lookup(b, start, end);
+    }
+
+    @Override public byte[] bytes() {
+        return VALUES.bytes(this);
     }
 }
@@ -11,5 +11,10 @@ public class UnexpectedTagException extends Exception {
         return tag;
     }
 
+    /* See ParseException.fillInStackTrace().  */
+    @Override public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
     private static final long serialVersionUID = 1L;
 }
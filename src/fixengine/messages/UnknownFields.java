@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import lang.Integers;
+
+/**
+ * User-defined tags and tags not defined for the message type, captured
+ * during parsing in the order they appear. The raw values are copied to a
+ * byte array owned by the table and indexed with tag, offset and length
+ * arrays, so the table stays valid after the parsed buffer is reused.
+ *
+ * A table is only allocated for messages that contain such tags.
+ */
+public class UnknownFields {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private int[] tags = new int[INITIAL_CAPACITY];
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private byte[] data = new byte[INITIAL_CAPACITY * 16];
+    private int count;
+    private int used;
+
+    /*
+     * Captures the value that starts at the buffer's position and moves the
+     * position past its delimiter. Returns false if the value is not
+     * terminated.
+     */
+    boolean add(int tag, ByteBuffer b) {
+        int start = b.position();
+        int end = AbstractField.skipValue(b);
+        if (end < 0)
+            return false;
+        int length = end - start;
+        if (count == tags.length) {
+            tags = grow(tags, count * 2);
+            offsets = grow(offsets, count * 2);
+            lengths = grow(lengths, count * 2);
+        }
+        if (used + length > data.length) {
+            byte[] newData = new byte[Math.max(data.length * 2, used + length)];
+            System.arraycopy(data, 0, newData, 0, used);
+            data = newData;
+        }
+        for (int i = 0; i < length; i++)
+            data[used + i] = b.get(start + i);
+        tags[count] = tag;
+        offsets[count] = used;
+        lengths[count] = length;
+        used += length;
+        count++;
+        return true;
+    }
+
+    private static int[] grow(int[] array, int length) {
+        int[] result = new int[length];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    void clear() {
+        count = used = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int tagAt(int index) {
+        return tags[index];
+    }
+
+    public int indexOf(int tag) {
+        for (int i = 0; i < count; i++) {
+            if (tags[i] == tag)
+                return i;
+        }
+        return -1;
+    }
+
+    public boolean contains(int tag) {
+        return indexOf(tag) >= 0;
+    }
+
+    /**
+     * Returns the value of the first occurrence of <code>tag</code> or
+     * <code>null</code> if the tag was not captured.
+     */
+    public String getString(int tag) {
+        int index = indexOf(tag);
+        if (index < 0)
+            return null;
+        char[] chars = new char[lengths[index]];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = (char) (data[offsets[index] + i] & 0xff);
+        return new String(chars);
+    }
+
+    /**
+     * Copies the value at <code>index</code> to <code>dst</code> and returns
+     * the number of bytes copied.
+     */
+    public int getBytes(int index, byte[] dst, int offset) {
+        System.arraycopy(data, offsets[index], dst, offset, lengths[index]);
+        return lengths[index];
+    }
+
+    public int getInt(int tag) {
+        int index = indexOf(tag);
+        if (index < 0)
+            throw new IllegalArgumentException(tag + ": Tag missing");
+        ByteBuffer value = ByteBuffer.wrap(data, offsets[index], lengths[index]);
+        try {
+            return Integers.parseInt(value, value.position(), value.limit());
+        } catch (NumberFormatException e) {
+            throw new InvalidValueFormatException(tag + ": Invalid value format");
+        }
+    }
+
+    void encode(ByteBuffer b) {
+        for (int i = 0; i < count; i++) {
+            Integers.put(b, tags[i]);
+            b.put((byte) '=');
+            b.put(data, offsets[i], lengths[i]);
+            b.put((byte) Field.DELIMITER);
+        }
+    }
+
+    public String format() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            result.append(tags[i]).append('=');
+            for (int j = 0; j < lengths[i]; j++)
+                result.append((char) (data[offsets[i] + j] & 0xff));
+            result.append(Field.DELIMITER);
+        }
+        return result.toString();
+    }
+}
@@ -15,42 +15,115 @@
  */
 package fixengine.messages;
 
-import static org.joda.time.DateTimeZone.UTC;
+import java.nio.ByteBuffer;
+
+import lang.Timestamps;
 
 import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.DateTimeZone;
 
 /**
+ * A UTCTimestamp field. The value is kept as microseconds since the epoch
+ * together with the precision it is formatted with; a {@link DateTime} is
+ * only created when one is asked for.
+ *
  * @author Pekka Enberg 
  */
 public class UtcTimestampField extends AbstractField<DateTime> {
-    private static final String FORMAT = "yyyyMMdd-HH:mm:ss";
+    private long micros;
+    private int precision;
+    private boolean hasTimestamp;
 
     public UtcTimestampField(Tag<UtcTimestampField> tag) {
         this(tag, Required.YES);
     }
 
     public UtcTimestampField(Tag<UtcTimestampField> tag, DateTime dateTime) {
-        super(tag, dateTime, Required.YES);
+        super(tag, null, Required.YES);
+        setValue(dateTime);
     }
 
     public UtcTimestampField(Tag<UtcTimestampField> tag, Required required) {
         super(tag, null, required);
     }
 
+    /**
+     * Sets the value with whole second precision.
+     */
+    @Override public void setValue(DateTime value) {
+        if (value == null) {
+            micros = 0;
+            precision = Timestamps.SECONDS;
+            hasTimestamp = false;
+            return;
+        }
+        setEpochMillis(value.getMillis(), Timestamps.SECONDS);
+    }
+
+    public void setEpochMillis(long millis, int precision) {
+        setEpochMicros(millis * 1000, precision);
+    }
+
+    /**
+     * @param precision number of fraction digits to format:
+     *        {@link Timestamps#SECONDS}, {@link Timestamps#MILLIS} or
+     *        {@link Timestamps#MICROS}
+     */
+    public void setEpochMicros(long micros, int precision) {
+        if (precision != Timestamps.SECONDS && precision != Timestamps.MILLIS && precision != Timestamps.MICROS)
+            throw new IllegalArgumentException("Invalid precision: " + precision);
+        this.micros = micros;
+        this.precision = precision;
+        this.hasTimestamp = true;
+    }
+
+    public long getEpochMillis() {
+        return micros >= 0 ? micros / 1000 : -((999 - micros) / 1000);
+    }
+
+    public long getEpochMicros() {
+        return micros;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    @Override public DateTime getValue() {
+        if (!hasTimestamp)
+            return null;
+        return new DateTime(getEpochMillis(), DateTimeZone.UTC);
+    }
+
+    @Override public boolean hasValue() {
+        return hasTimestamp;
+    }
+
     @Override
     public void parse(String value) {
-        DateTimeFormatter fmt = getFormat();
-        try {
-            this.value = fmt.withZone(UTC).parseDateTime(value);
-        } catch (Exception e) {
+        setParsed(Timestamps.parse(value), value.length());
+    }
+
+    @Override
+    protected void parse(ByteBuffer b, int start, int end) {
+        setParsed(Timestamps.parse(b, start, end), end - start);
+    }
+
+    private void setParsed(long micros, int length) {
+        if (micros == Timestamps.INVALID) {
             validFormat = false;
+            return;
         }
+        setEpochMicros(micros, Timestamps.precision(length));
     }
     
     public DateTime dateValue() {
-        return value;
+        return getValue();
+    }
+
+    @Override
+    protected void encodeValue(ByteBuffer b) {
+        Timestamps.put(b, micros, precision);
     }
 
     @Override
@@ -58,11 +131,8 @@ public class UtcTimestampField extends AbstractField<DateTime> {
         if (!hasValue()) {
             return null;
         }
-        DateTimeFormatter fmt = getFormat();
-        return fmt.withZone(UTC).print(value);
-    }
-
-    private DateTimeFormatter getFormat() {
-        return DateTimeFormat.forPattern(FORMAT);
+        StringBuilder result = new StringBuilder(24);
+        Timestamps.append(result, micros, precision);
+        return result.toString();
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Lookup tables for decoding and encoding the values of a {@link Formattable}
+ * enum. One and two character values are found with a single array load
+ * indexed by the ASCII code(s). If all values are numbers, longer values are
+ * found with an array load indexed by the number. Encoded values are computed
+ * once per constant.
+ */
+public class ValueTable<T extends Enum<T> & Formattable> {
+    private static final int ASCII = 128;
+    private static final int MAX_NUMBER = 1024;
+
+    private final Formattable[] narrow = new Formattable[ASCII];
+    private Formattable[] wide;
+    private Formattable[] numbers = new Formattable[0];
+    private boolean numeric = true;
+    private final String[] strings;
+    private final byte[][] bytes;
+
+    public ValueTable(T[] values) {
+        strings = new String[values.length];
+        bytes = new byte[values.length][];
+        for (T value : values) {
+            if (toNumber(value.value()) < 0)
+                numeric = false;
+        }
+        for (T value : values) {
+            String s = value.value();
+            strings[value.ordinal()] = s;
+            bytes[value.ordinal()] = toBytes(s);
+            if (numeric)
+                addNumber(toNumber(s), value);
+            else if (s.length() == 1 && s.charAt(0) < ASCII)
+                narrow[s.charAt(0)] = value;
+            else if (s.length() == 2 && s.charAt(0) < ASCII && s.charAt(1) < ASCII) {
+                if (wide == null)
+                    wide = new Formattable[ASCII * ASCII];
+                wide[s.charAt(0) * ASCII + s.charAt(1)] = value;
+            }
+        }
+    }
+
+    private void addNumber(int number, T value) {
+        if (number >= numbers.length) {
+            Formattable[] newNumbers = new Formattable[number + 1];
+            System.arraycopy(numbers, 0, newNumbers, 0, numbers.length);
+            numbers = newNumbers;
+        }
+        numbers[number] = value;
+        if (number < 10)
+            narrow['0' + number] = value;
+    }
+
+    private static byte[] toBytes(String s) {
+        byte[] result = new byte[s.length()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = (byte) s.charAt(i);
+        return result;
+    }
+
+    private static int toNumber(String s) {
+        if (s.length() == 0 || s.length() > 4)
+            return -1;
+        int result = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9')
+                return -1;
+            result = result * 10 + (ch - '0');
+        }
+        return result < MAX_NUMBER ? result : -1;
+    }
+
+    @SuppressWarnings("unchecked") public T lookup(char value) {
+        if (value >= ASCII)
+            return null;
+        return (T) narrow[value];
+    }
+
+    @SuppressWarnings("unchecked") public T lookup(int value) {
+        if (value < 0 || value >= numbers.length)
+            return null;
+        return (T) numbers[value];
+    }
+
+    /**
+     * Looks up the value whose encoding is in range [start, end) of the
+     * buffer, or returns <code>null</code> if there is no such value.
+     */
+    @SuppressWarnings("unchecked") public T lookup(ByteBuffer b, int start, int end) {
+        int length = end - start;
+        if (length == 1)
+            return lookup((char) (b.get(start) & 0xff));
+        if (length == 2 && wide != null) {
+            int first = b.get(start), second = b.get(start + 1);
+            if (first < 0 || second < 0)
+                return null;
+            return (T) wide[first * ASCII + second];
+        }
+        if (!numeric || length > 4)
+            return null;
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            int ch = b.get(i);
+            if (ch < '0' || ch > '9')
+                return null;
+            number = number * 10 + (ch - '0');
+        }
+        return lookup(number);
+    }
+
+    @SuppressWarnings("unchecked") public T lookup(String value) {
+        if (value.length() == 1)
+            return lookup(value.charAt(0));
+        if (value.length() == 2 && wide != null) {
+            char first = value.charAt(0), second = value.charAt(1);
+            if (first >= ASCII || second >= ASCII)
+                return null;
+            return (T) wide[first * ASCII + second];
+        }
+        if (!numeric)
+            return null;
+        int number = toNumber(value);
+        return number >= 0 ? lookup(number) : null;
+    }
+
+    public T parse(char value) {
+        T result = lookup(value);
+        if (result == null)
+            throw new InvalidValueForTagException(Character.toString(value));
+        return result;
+    }
+
+    public T parse(int value) {
+        T result = lookup(value);
+        if (result == null)
+            throw new InvalidValueForTagException(Integer.toString(value));
+        return result;
+    }
+
+    public String string(T value) {
+        return strings[value.ordinal()];
+    }
+
+    /**
+     * Returns the encoded value. The returned array is shared and must not
+     * be modified.
+     */
+    public byte[] bytes(T value) {
+        return bytes[value.ordinal()];
+    }
+}
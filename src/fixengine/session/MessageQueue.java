@@ -48,6 +48,10 @@ public class MessageQueue {
         maxSeqNum = Math.max(msgSeqNum, maxSeqNum);
     }
 
+    public boolean contains(Message message) {
+        return queue.contains(message);
+    }
+
     public Message dequeue() {
         Message result = queue.first();
         queue.remove(result);
@@ -15,6 +15,7 @@
  */
 package fixengine.session;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,20 +23,23 @@ import lang.DefaultTimeSource;
 import lang.TimeSource;
 import silvertip.Connection;
 import fixengine.Config;
-import fixengine.messages.AbstractFieldsValidator;
 import fixengine.messages.AbstractMessageValidator;
-import fixengine.messages.BusinessMessageRejectMessage;
 import fixengine.messages.BusinessRejectReasonValue;
 import fixengine.messages.DefaultMessageVisitor;
 import fixengine.messages.EncryptMethodValue;
-import fixengine.messages.Field;
-import fixengine.messages.HeartbeatMessage;
 import fixengine.messages.LogonMessage;
 import fixengine.messages.LogoutMessage;
 import fixengine.messages.Message;
+import fixengine.messages.MessageEncoder;
+import fixengine.messages.MessageHeader;
+import fixengine.messages.MessagePool;
+import fixengine.messages.MessageTemplate;
 import fixengine.messages.MessageVisitor;
+import fixengine.messages.MsgTypeValue;
+import fixengine.messages.ParseError;
 import fixengine.messages.Parser;
-import fixengine.messages.RejectMessage;
+import fixengine.messages.PreEncodedHeader;
+import fixengine.messages.PreParsedHeader;
 import fixengine.messages.ResendRequestMessage;
 import fixengine.messages.SequenceResetMessage;
 import fixengine.messages.SessionRejectReasonValue;
@@ -67,6 +71,13 @@ public class Session {
     protected final Config config;
     protected final SessionStore store;
 
+    private final PreParsedHeader preParsedHeader = new PreParsedHeader();
+    private final Receiver receiver = new Receiver();
+    private final MessageEncoder encoder = new MessageEncoder();
+    private PreEncodedHeader preEncodedHeader;
+    private MessagePool pool;
+    private boolean capturesUnknownFields;
+
     private long testReqId;
     private boolean initiatedLogout;
     private boolean authenticated;
@@ -104,85 +115,359 @@ public class Session {
         queue.reset(seq.peek());
     }
 
+    /**
+     * Recycles session-level messages and inbound messages through
+     * <code>pool</code>. With a pool, messages passed to the application's
+     * {@link MessageVisitor} are only valid for the duration of the visit
+     * call because the session releases them afterwards.
+     */
+    public void setMessagePool(MessagePool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Accepts inbound messages with user-defined tags or tags not defined for
+     * their message type and captures those tags instead of rejecting the
+     * message. Off by default.
+     */
+    public void setCapturesUnknownFields(boolean capturesUnknownFields) {
+        this.capturesUnknownFields = capturesUnknownFields;
+    }
+
+    /**
+     * Sends the message. The message is encoded before this method returns
+     * and is not retained, so the caller is free to reuse or release it.
+     * BeginString, SenderCompID and TargetCompID are taken from the
+     * session's configuration rather than from the message.
+     */
     public void send(Connection conn, Message message) {
-        message.setHeaderConfig(config);
         message.setMsgSeqNum(outgoingSeq.next());
-        message.setSendingTime(timeSource.currentTime());
-        conn.send(silvertip.Message.fromString(message.format()));
+        message.setSendingTime(timeSource.currentTimeMicros());
+        conn.send(encode(message));
+        prevTxTimeMsec = System.currentTimeMillis();
+        store.save(this);
+    }
+
+    /**
+     * Sends a message rendered from <code>template</code> with the next
+     * outgoing sequence number; see {@link #send(Connection, Message)}.
+     */
+    public void send(Connection conn, MessageTemplate template) {
+        template.setMsgSeqNum(outgoingSeq.next());
+        template.setSendingTime(timeSource.currentTimeMicros());
+        conn.send(payload(encoder.encode(template, preEncodedHeader())));
         prevTxTimeMsec = System.currentTimeMillis();
         store.save(this);
     }
 
-    public void receive(final Connection conn, silvertip.Message message, final MessageVisitor visitor) {
+    private silvertip.Message encode(Message message) {
+        return payload(encoder.encode(message, preEncodedHeader()));
+    }
+
+    /*
+     * The configuration is mutable, so the cached header is encoded again
+     * whenever one of its values has been changed.
+     */
+    private PreEncodedHeader preEncodedHeader() {
+        if (preEncodedHeader == null || !preEncodedHeader.isFor(config))
+            preEncodedHeader = new PreEncodedHeader(config);
+        return preEncodedHeader;
+    }
+
+    private static silvertip.Message payload(ByteBuffer frame) {
+        byte[] payload = new byte[frame.remaining()];
+        frame.get(payload);
+        return new silvertip.Message(payload);
+    }
+
+    public void receive(Connection conn, silvertip.Message message, MessageVisitor visitor) {
         prevRxTimeMsec = System.currentTimeMillis();
+        ByteBuffer b = message.toByteBuffer();
+        boolean preParsed = preParsedHeader.parse(b);
+        if (preParsed && isStaleDuplicate())
+            return;
+        receiver.conn = conn;
+        receiver.visitor = visitor;
         try {
-            Parser.parse(message, new Parser.Callback() {
-                @Override public void message(Message message) {
-                    int expected = queue.nextSeqNum();
-
-                    if (validate(conn, message))
-                        process(conn, message, visitor);
-                    else
-                        queue.skip(message);
-
-                    /*
-                     * We're out-of-sync if there's a gap in the sequence
-                     * numbers. However, if the other side is in the middle of
-                     * resending the missing messages, don't attempt to sync
-                     * after each received message.
-                     */
-                    if (!conn.isClosed() && isOutOfSync() && message.getMsgSeqNum() != expected)
-                        syncMessages(conn);
+            if (capturesUnknownFields)
+                Parser.parseCapturingUnknownFields(b, preParsedHeader, pool, receiver.error, receiver);
+            else
+                Parser.parse(b, preParsedHeader, pool, receiver.error, receiver);
+        } finally {
+            receiver.conn = null;
+            receiver.visitor = null;
+            store.save(this);
+        }
+    }
+
+    /*
+     * Handles the outcome of parsing a received message. A single instance,
+     * including its validators and visitors, is reused for every message so
+     * that receiving does not allocate.
+     */
+    private class Receiver implements Parser.ErrorCallback {
+        private final List<Validator<Message>> validators = new ArrayList<Validator<Message>>();
+        private final ParseError error = new ParseError();
+        private Connection conn;
+        private MessageVisitor visitor;
+        private Message current;
+
+        private final MessageVisitor sessionVisitor = new DefaultMessageVisitor() {
+            @Override public void visit(TestRequestMessage message) {
+                queue.skip(message);
+                Message heartbeat = newMessage(MsgTypeValue.HEARTBEAT);
+                heartbeat.setString(TestReqID.TAG, message.getString(TestReqID.TAG));
+                sendAndRelease(conn, heartbeat);
+            }
+
+            @Override public void visit(ResendRequestMessage message) {
+                queue.skip(message);
+                int newSeqNo = outgoingSeq.peek();
+                outgoingSeq.reset(message.getInteger(BeginSeqNo.TAG));
+                fillSequenceGap(conn, newSeqNo);
+            }
+
+            @Override public void visit(SequenceResetMessage message) {
+                processSeqReset(conn, message);
+            }
+
+            @Override public void visit(LogoutMessage message) {
+                queue.skip(message);
+                if (!initiatedLogout)
+                    sendAndRelease(conn, newMessage(MsgTypeValue.LOGOUT));
+                conn.close();
+            }
+
+            @Override public void defaultAction(Message message) {
+                queue.enqueue(message);
+                deliverQueued();
+            }
+        };
+
+        private final MessageVisitor logonVisitor = new DefaultMessageVisitor() {
+            @Override public void visit(LogonMessage message) {
+                authenticated = true;
+                queue.enqueue(message);
+                deliverQueued();
+            }
+
+            @Override public void defaultAction(Message message) {
+                logout(conn);
+            }
+        };
+
+        Receiver() {
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return available;
+                }
+
+                @Override protected void error(Message message) {
+                    businessReject(conn, message.getMsgType(), message.getMsgSeqNum(), BusinessRejectReasonValue.APPLICATION_NOT_AVAILABLE,
+                            "Application not available");
+                }
+            });
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return !message.isTooLowSeqNum(queue.nextSeqNum());
+                }
+
+                @Override protected void error(Message message) {
+                    terminate(conn, message, "MsgSeqNum too low, expecting " + queue.nextSeqNum() + " but received "
+                            + message.getMsgSeqNum());
+                }
+            });
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return message.hasValidBeginString(config);
                 }
 
-                @Override public void invalidMessage(int msgSeqNum, SessionRejectReasonValue reason, String text) {
-                    queue.skip(msgSeqNum);
-                    if (authenticated)
-                        sessionReject(conn, msgSeqNum, reason, text);
-                    else
-                        logout(conn);
+                @Override protected void error(Message message) {
+                    terminate(conn, message, "BeginString is invalid, expecting " + config.getVersion().value() + " but received "
+                            + message.getBeginString());
+                }
+            });
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return message.hasValidSenderCompId(config);
+                }
+
+                @Override protected void error(Message message) {
+                    sessionReject(conn, message, SessionRejectReasonValue.COMP_ID_PROBLEM, "Invalid SenderCompID(49): " + message.getSenderCompId());
+                    terminate(conn, message, message.getSenderCompId());
+                }
+            });
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return message.hasValidTargetCompId(config);
                 }
 
-                @Override public void unsupportedMsgType(String msgType, int msgSeqNum) {
-                    queue.skip(msgSeqNum);
-                    businessReject(conn, msgType, msgSeqNum, BusinessRejectReasonValue.UNKNOWN_MESSAGE_TYPE, "MsgType(35): Unknown message type: " + msgType);
+                @Override protected void error(Message message) {
+                    sessionReject(conn, message, SessionRejectReasonValue.COMP_ID_PROBLEM, "Invalid TargetCompID(56): " + message.getTargetCompId());
+                    terminate(conn, message, message.getTargetCompId());
+                }
+            });
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return message.hasOrigSendTimeAfterSendingTime();
                 }
 
-                @Override public void invalidMsgType(String msgType, int msgSeqNum) {
-                    queue.skip(msgSeqNum);
-                    sessionReject(conn, msgSeqNum, SessionRejectReasonValue.INVALID_MSG_TYPE, "MsgType(35): Invalid message type: " + msgType);
+                @Override protected void error(Message message) {
+                    String text = "OrigSendTime " + message.getOrigSendingTime() + " after " + message.getSendingTime();
+                    sessionReject(conn, message, SessionRejectReasonValue.SENDING_TIME_ACCURACY_PROBLEM, text);
+                    terminate(conn, message, text);
+                }
+            });
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return message.hasAccurateSendingTime(timeSource.currentTimeMicros());
                 }
 
-                @Override public void garbledMessage(String text) {
-                    /* Ignore the message. */
+                @Override protected void error(Message message) {
+                    String text = "SendingTime is invalid: " + message.getSendingTime();
+                    sessionReject(conn, message, SessionRejectReasonValue.SENDING_TIME_ACCURACY_PROBLEM, text);
+                    terminate(conn, message, text);
                 }
             });
-        } finally {
-            store.save(this);
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return message.isPointToPoint();
+                }
+
+                @Override protected void error(Message message) {
+                    sessionReject(conn, message, SessionRejectReasonValue.COMP_ID_PROBLEM, "Third-party message routing is not supported");
+                }
+            });
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return message.missingField() == null;
+                }
+
+                @Override protected void error(Message message) {
+                    sessionReject(conn, message, SessionRejectReasonValue.TAG_MISSING, message.missingField().prettyName() + ": Tag missing");
+                }
+            });
+            validators.add(new AbstractMessageValidator() {
+                @Override protected boolean isValid(Message message) {
+                    return message.missingConditionalField() == null;
+                }
+
+                @Override protected void error(Message message) {
+                    businessReject(conn, message.getMsgType(), message.getMsgSeqNum(), BusinessRejectReasonValue.CONDITIONALLY_REQUIRED_FIELD_MISSING, message.missingConditionalField().prettyName() + ": Conditionally required field missing");
+                }
+            });
+        }
+
+        @Override public void message(Message message) {
+            int expected = queue.nextSeqNum();
+            int msgSeqNum = message.getMsgSeqNum();
+
+            current = message;
+            try {
+                if (validate(message))
+                    message.apply(authenticated ? sessionVisitor : logonVisitor);
+                else
+                    queue.skip(message);
+            } finally {
+                current = null;
+            }
+
+            /*
+             * We're out-of-sync if there's a gap in the sequence
+             * numbers. However, if the other side is in the middle of
+             * resending the missing messages, don't attempt to sync
+             * after each received message.
+             */
+            if (!conn.isClosed() && isOutOfSync() && msgSeqNum != expected)
+                syncMessages(conn);
+
+            /*
+             * Messages that are still queued are released when they are
+             * delivered.
+             */
+            if (!queue.contains(message))
+                release(message);
+        }
+
+        private boolean validate(Message message) {
+            for (Validator<Message> validator : validators) {
+                if (!validator.validate(message))
+                    return false;
+            }
+            return true;
+        }
+
+        private void deliverQueued() {
+            if (isOutOfSync())
+                return;
+            while (!queue.isEmpty()) {
+                Message message = queue.dequeue();
+                message.apply(visitor);
+                if (message != current)
+                    release(message);
+            }
+        }
+
+        @Override public void error(ParseError error) {
+            switch (error.getKind()) {
+            case GARBLED:
+                /* Ignore the message. */
+                break;
+            case INVALID_MSG_TYPE:
+                queue.skip(error.getMsgSeqNum());
+                sessionReject(conn, error.getMsgSeqNum(), SessionRejectReasonValue.INVALID_MSG_TYPE, error.getText());
+                break;
+            case UNSUPPORTED_MSG_TYPE:
+                queue.skip(error.getMsgSeqNum());
+                businessReject(conn, error.getMsgType(), error.getMsgSeqNum(), BusinessRejectReasonValue.UNKNOWN_MESSAGE_TYPE, error.getText());
+                break;
+            default:
+                queue.skip(error.getMsgSeqNum());
+                if (authenticated)
+                    sessionReject(conn, error.getMsgSeqNum(), error.getReason(), error.getText());
+                else
+                    logout(conn);
+                break;
+            }
         }
     }
 
+    /*
+     * A possible duplicate with a sequence number we have already seen is
+     * ignored, so there is no point in decoding its body.  Sequence resets
+     * still go through the full path because they can move the sequence.
+     */
+    private boolean isStaleDuplicate() {
+        if (!authenticated)
+            return false;
+        if (!preParsedHeader.getPossDupFlag() || !preParsedHeader.hasMsgSeqNum())
+            return false;
+        if (preParsedHeader.getMsgType() == MsgTypeValue.SEQUENCE_RESET)
+            return false;
+        return preParsedHeader.getMsgSeqNum() < queue.nextSeqNum();
+    }
+
     public void logon(Connection conn) {
         authenticated = initiatedLogout = false;
-        LogonMessage message = new LogonMessage();
+        Message message = newMessage(MsgTypeValue.LOGON);
         message.setInteger(HeartBtInt.TAG, 30);
         message.setEnum(EncryptMethod.TAG, EncryptMethodValue.NONE);
-        send(conn, message);
+        sendAndRelease(conn, message);
     }
 
     public void logout(final Connection conn) {
-        send(conn, new LogoutMessage());
+        sendAndRelease(conn, newMessage(MsgTypeValue.LOGOUT));
         initiatedLogout = true;
     }
 
     public void sequenceReset(Connection conn, Sequence seq) {
-        SequenceResetMessage message = new SequenceResetMessage();
-        message.setHeaderConfig(config);
-        message.setSendingTime(timeSource.currentTime());
+        Message message = newMessage(MsgTypeValue.SEQUENCE_RESET);
+        message.setSendingTime(timeSource.currentTimeMicros());
         message.setMsgSeqNum(seq.peek());
         message.setInteger(NewSeqNo.TAG, seq.next());
         message.setBoolean(GapFillFlag.TAG, false);
-        conn.send(silvertip.Message.fromString(message.format()));
+        conn.send(encode(message));
+        release(message);
         prevTxTimeMsec = System.currentTimeMillis();
         setOutgoingSeq(seq);
         store.save(this);
@@ -207,7 +492,7 @@ public class Session {
     }
 
     public void heartbeat(Connection conn) {
-        send(conn, new HeartbeatMessage());
+        sendAndRelease(conn, newMessage(MsgTypeValue.HEARTBEAT));
     }
 
     protected boolean checkSeqResetSeqNum() {
@@ -215,181 +500,25 @@ public class Session {
     }
 
     private void testRequest(Connection conn) {
-        TestRequestMessage req = new TestRequestMessage();
+        Message req = newMessage(MsgTypeValue.TEST_REQUEST);
         req.setString(TestReqID.TAG, Long.toString(++testReqId));
-        send(conn, req);
+        sendAndRelease(conn, req);
     }
 
-    private void process(final Connection conn, Message message, final MessageVisitor visitor) {
-        if (authenticated) {
-            message.apply(new DefaultMessageVisitor() {
-                @Override public void visit(TestRequestMessage message) {
-                    queue.skip(message);
-                    HeartbeatMessage heartbeat = new HeartbeatMessage();
-                    heartbeat.setString(TestReqID.TAG, message.getString(TestReqID.TAG));
-                    send(conn, heartbeat);
-                }
-
-                @Override public void visit(ResendRequestMessage message) {
-                    queue.skip(message);
-                    int newSeqNo = outgoingSeq.peek();
-                    outgoingSeq.reset(message.getInteger(BeginSeqNo.TAG));
-                    fillSequenceGap(conn, newSeqNo);
-                }
-
-                @Override public void visit(SequenceResetMessage message) {
-                    processSeqReset(conn, message);
-                }
-
-                @Override public void visit(LogoutMessage message) {
-                    queue.skip(message);
-                    if (!initiatedLogout)
-                        send(conn, new LogoutMessage());
-                    conn.close();
-                }
-
-                @Override public void defaultAction(Message message) {
-                    queue.enqueue(message);
-                    if (!isOutOfSync()) {
-                        while (!queue.isEmpty())
-                            queue.dequeue().apply(visitor);
-                    }
-                }
-            });
-        } else {
-            message.apply(new DefaultMessageVisitor() {
-                @Override public void visit(LogonMessage message) {
-                    authenticated = true;
-                    queue.enqueue(message);
-                    if (!isOutOfSync()) {
-                        while (!queue.isEmpty())
-                            queue.dequeue().apply(visitor);
-                    }
-                }
+    private Message newMessage(MsgTypeValue type) {
+        if (pool == null)
+            return type.newMessage(new MessageHeader(type));
+        return pool.acquire(type);
+    }
 
-                @Override public void defaultAction(Message message) {
-                    logout(conn);
-                }
-            });
-        }
+    private void sendAndRelease(Connection conn, Message message) {
+        send(conn, message);
+        release(message);
     }
 
-    private boolean validate(final Connection conn, Message message) {
-        List<Validator<Message>> validators = new ArrayList<Validator<Message>>() {
-            {
-                add(new AbstractMessageValidator() {
-                    @Override protected boolean isValid(Message message) {
-                        return available;
-                    }
-
-                    @Override protected void error(Message message) {
-                        businessReject(conn, message.getMsgType(), message.getMsgSeqNum(), BusinessRejectReasonValue.APPLICATION_NOT_AVAILABLE,
-                                "Application not available");
-                    }
-                });
-                add(new AbstractMessageValidator() {
-                    @Override protected boolean isValid(Message message) {
-                        return !message.isTooLowSeqNum(queue.nextSeqNum());
-                    }
-
-                    @Override protected void error(Message message) {
-                        terminate(conn, message, "MsgSeqNum too low, expecting " + queue.nextSeqNum() + " but received "
-                                + message.getMsgSeqNum());
-                    }
-                });
-                add(new AbstractMessageValidator() {
-                    @Override protected boolean isValid(Message message) {
-                        return message.hasValidBeginString(config);
-                    }
-
-                    @Override protected void error(Message message) {
-                        terminate(conn, message, "BeginString is invalid, expecting " + config.getVersion().value() + " but received "
-                                + message.getBeginString());
-                    }
-                });
-                add(new AbstractMessageValidator() {
-                    @Override protected boolean isValid(Message message) {
-                        return message.hasValidSenderCompId(config);
-                    }
-
-                    @Override protected void error(Message message) {
-                        sessionReject(conn, message, SessionRejectReasonValue.COMP_ID_PROBLEM, "Invalid SenderCompID(49): " + message.getSenderCompId());
-                        terminate(conn, message, message.getSenderCompId());
-                    }
-                });
-                add(new AbstractMessageValidator() {
-                    @Override protected boolean isValid(Message message) {
-                        return message.hasValidTargetCompId(config);
-                    }
-
-                    @Override protected void error(Message message) {
-                        sessionReject(conn, message, SessionRejectReasonValue.COMP_ID_PROBLEM, "Invalid TargetCompID(56): " + message.getTargetCompId());
-                        terminate(conn, message, message.getTargetCompId());
-                    }
-                });
-                add(new AbstractMessageValidator() {
-                    @Override protected boolean isValid(Message message) {
-                        return message.hasOrigSendTimeAfterSendingTime();
-                    }
-
-                    @Override protected void error(Message message) {
-                        String text = "OrigSendTime " + message.getOrigSendingTime() + " after " + message.getSendingTime();
-                        sessionReject(conn, message, SessionRejectReasonValue.SENDING_TIME_ACCURACY_PROBLEM, text);
-                        terminate(conn, message, text);
-                    }
-                });
-                add(new AbstractMessageValidator() {
-                    @Override protected boolean isValid(Message message) {
-                        return message.hasAccurateSendingTime(timeSource.currentTime());
-                    }
-
-                    @Override protected void error(Message message) {
-                        String text = "SendingTime is invalid: " + message.getSendingTime();
-                        sessionReject(conn, message, SessionRejectReasonValue.SENDING_TIME_ACCURACY_PROBLEM, text);
-                        terminate(conn, message, text);
-                    }
-                });
-                add(new AbstractMessageValidator() {
-                    @Override protected boolean isValid(Message message) {
-                        return message.isPointToPoint();
-                    }
-
-                    @Override protected void error(Message message) {
-                        sessionReject(conn, message, SessionRejectReasonValue.COMP_ID_PROBLEM, "Third-party message routing is not supported");
-                    }
-                });
-                add(new AbstractFieldsValidator() {
-                    @Override protected boolean isValid(Field field) {
-                        if (field.isConditional()) {
-                            return true;
-                        }
-                        return !field.isMissing();
-                    }
-
-                    @Override protected void error(Message message, Field field) {
-                        sessionReject(conn, message, SessionRejectReasonValue.TAG_MISSING, toString(field) + ": Tag missing");
-                    }
-                });
-                add(new AbstractFieldsValidator() {
-                    @Override protected boolean isValid(Field field) {
-                        if (!field.isConditional()) {
-                            return true;
-                        }
-                        return !field.isMissing();
-                    }
-
-                    @Override protected void error(Message message, Field field) {
-                        businessReject(conn, message.getMsgType(), message.getMsgSeqNum(), BusinessRejectReasonValue.CONDITIONALLY_REQUIRED_FIELD_MISSING, toString(field) + ": Conditionally required field missing");
-                    }
-                });
-            }
-            private static final long serialVersionUID = 1L;
-        };
-        for (Validator<Message> validator : validators) {
-            if (!validator.validate(message))
-                return false;
-        }
-        return true;
+    private void release(Message message) {
+        if (pool != null)
+            pool.release(message);
     }
 
     private boolean isOutOfSync() {
@@ -401,54 +530,54 @@ public class Session {
     }
 
     private void sessionReject(Connection conn, int msgSeqNum, SessionRejectReasonValue reason, String text) {
-        RejectMessage reject = new RejectMessage();
+        Message reject = newMessage(MsgTypeValue.REJECT);
         reject.setInteger(RefSeqNo.TAG, msgSeqNum);
         reject.setEnum(SessionRejectReason.TAG, reason);
         reject.setString(Text.TAG, text);
-        send(conn, reject);
+        sendAndRelease(conn, reject);
     }
 
     private void businessReject(Connection conn, String msgType, int msgSeqNum, BusinessRejectReasonValue reason, String text) {
-        BusinessMessageRejectMessage reject = new BusinessMessageRejectMessage();
+        Message reject = newMessage(MsgTypeValue.BUSINESS_MESSAGE_REJECT);
         reject.setInteger(RefSeqNo.TAG, msgSeqNum);
         reject.setString(RefMsgType.TAG, msgType);
         reject.setEnum(BusinessRejectReason.TAG, reason);
         reject.setString(Text.TAG, text);
-        send(conn, reject);
+        sendAndRelease(conn, reject);
     }
 
     private void terminate(Connection conn, Message message, String text) {
-        LogoutMessage logout = new LogoutMessage();
+        Message logout = newMessage(MsgTypeValue.LOGOUT);
         logout.setString(Text.TAG, text);
-        send(conn, logout);
+        sendAndRelease(conn, logout);
         conn.close();
     }
 
     private void fillSequenceGap(Connection conn, int newSeqNo) {
-        SequenceResetMessage seqReset = new SequenceResetMessage();
+        Message seqReset = newMessage(MsgTypeValue.SEQUENCE_RESET);
         seqReset.setPossDupFlag(true);
         seqReset.setBoolean(GapFillFlag.TAG, true);
         seqReset.setInteger(NewSeqNo.TAG, newSeqNo);
-        send(conn, seqReset);
+        sendAndRelease(conn, seqReset);
         outgoingSeq.reset(newSeqNo);
     }
 
     private void syncMessages(Connection conn) {
         int beginSeqNo = queue.nextSeqNum();
-        ResendRequestMessage resendReq = new ResendRequestMessage();
+        Message resendReq = newMessage(MsgTypeValue.RESEND_REQUEST);
         resendReq.setInteger(BeginSeqNo.TAG, beginSeqNo);
         resendReq.setInteger(EndSeqNo.TAG, 0);
-        send(conn, resendReq);
+        sendAndRelease(conn, resendReq);
     }
 
     private void processSeqReset(Connection conn, SequenceResetMessage message) {
         int newSeqNo = message.getInteger(NewSeqNo.TAG);
         if (checkSeqResetSeqNum() && !message.isResetOk(queue.nextSeqNum())) {
             int beginSeqNo = queue.nextSeqNum();
-            ResendRequestMessage resendReq = new ResendRequestMessage();
+            Message resendReq = newMessage(MsgTypeValue.RESEND_REQUEST);
             resendReq.setInteger(BeginSeqNo.TAG, beginSeqNo);
             resendReq.setInteger(EndSeqNo.TAG, message.getMsgSeqNum() - 1);
-            send(conn, resendReq);
+            sendAndRelease(conn, resendReq);
         } else if (newSeqNo <= message.getMsgSeqNum() && message.getBoolean(GapFillFlag.TAG)) {
             sessionReject(conn, message.getMsgSeqNum(), SessionRejectReasonValue.INVALID_VALUE,
                 "Attempt to lower sequence number, invalid value NewSeqNum(36)=" + newSeqNo);
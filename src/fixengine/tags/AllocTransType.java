@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.AllocTransTypeValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class AllocTransType extends Tag<AllocTransType.Field> {
         @Override public void parse(String value) {
             this.value = AllocTransTypeValue.parse(value.charAt(0));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(AllocTransTypeValue.lookup(b, start, end));
+        }
     }
 }
@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.BusinessRejectReasonValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class BusinessRejectReason extends Tag<BusinessRejectReason.Field> {
         @Override public void parse(String value) {
             this.value = BusinessRejectReasonValue.parse(Integer.parseInt(value));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(BusinessRejectReasonValue.lookup(b, start, end));
+        }
     }
 }
@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.CustomerOrFirmValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class CustomerOrFirm extends Tag<CustomerOrFirm.Field> {
         @Override public void parse(String value) {
             this.value = CustomerOrFirmValue.parse(Integer.parseInt(value));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(CustomerOrFirmValue.lookup(b, start, end));
+        }
     }
 }
@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.CxlRejReasonValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class CxlRejReason extends Tag<CxlRejReason.Field> {
         @Override public void parse(String value) {
             this.value = CxlRejReasonValue.parse(Integer.parseInt(value));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(CxlRejReasonValue.lookup(b, start, end));
+        }
     }
 }
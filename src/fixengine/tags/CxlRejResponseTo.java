@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.CxlRejResponseToValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class CxlRejResponseTo extends Tag<CxlRejResponseTo.Field> {
         @Override public void parse(String value) {
             this.value = CxlRejResponseToValue.parse(value.charAt(0));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(CxlRejResponseToValue.lookup(b, start, end));
+        }
     }
 }
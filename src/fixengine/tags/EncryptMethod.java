@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.EncryptMethodValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class EncryptMethod extends Tag<EncryptMethod.Field> {
         @Override public void parse(String value) {
             this.value = EncryptMethodValue.parse(Integer.parseInt(value));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(EncryptMethodValue.lookup(b, start, end));
+        }
     }
 }
@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.ExecRestatementReasonValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class ExecRestatementReason extends Tag<ExecRestatementReason.Field> {
         @Override public void parse(String value) {
             this.value = ExecRestatementReasonValue.parse(Integer.parseInt(value));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(ExecRestatementReasonValue.lookup(b, start, end));
+        }
     }
 }
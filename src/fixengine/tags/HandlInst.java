@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.HandlInstValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class HandlInst extends Tag<HandlInst.Field> {
         @Override public void parse(String value) {
             this.value = HandlInstValue.parse(value.charAt(0));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(HandlInstValue.lookup(b, start, end));
+        }
     }
 }
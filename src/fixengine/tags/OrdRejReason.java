@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.OrdRejReasonValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class OrdRejReason extends Tag<OrdRejReason.Field> {
         @Override public void parse(String value) {
             this.value = OrdRejReasonValue.parse(Integer.parseInt(value));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(OrdRejReasonValue.lookup(b, start, end));
+        }
     }
 }
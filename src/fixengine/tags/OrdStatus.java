@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.OrdStatusValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class OrdStatus extends Tag<OrdStatus.Field> {
         @Override public void parse(String value) {
             this.value = OrdStatusValue.parse(value.charAt(0));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(OrdStatusValue.lookup(b, start, end));
+        }
     }
 }
@@ -15,6 +15,8 @@
  */
 package fixengine.tags;
 
+import java.nio.ByteBuffer;
+
 import fixengine.messages.SessionRejectReasonValue;
 import fixengine.messages.EnumField;
 import fixengine.messages.Required;
@@ -35,5 +37,9 @@ public class SessionRejectReason extends Tag<SessionRejectReason.Field> {
         @Override public void parse(String value) {
             this.value = SessionRejectReasonValue.parse(Integer.parseInt(value));
         }
+
+        @Override protected void parse(ByteBuffer b, int start, int end) {
+            setParsedValue(SessionRejectReasonValue.lookup(b, start, end));
+        }
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lang;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A character sequence backed by single-byte characters. The bytes are
+ * stored as-is and a <code>String</code> is created only when
+ * {@link #toString()} is called.
+ *
+ * Instances compare equal to any <code>CharSequence</code> with the same
+ * characters and have the same hash code as the equal <code>String</code>,
+ * so they can be used to look up <code>String</code>-keyed maps. Note that
+ * <code>String.equals()</code> is not symmetric with this and that an
+ * instance must not be modified while it is used as a key.
+ */
+public final class AsciiSequence implements CharSequence {
+    private byte[] bytes;
+    private int length;
+    private int hash;
+    private String string;
+
+    public AsciiSequence() {
+        this(16);
+    }
+
+    public AsciiSequence(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    /**
+     * Replaces the contents with a copy of the bytes in range [start, end) of
+     * the buffer. The internal storage is reused when it is large enough.
+     */
+    public AsciiSequence copy(ByteBuffer b, int start, int end) {
+        length = end - start;
+        if (length > bytes.length)
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        for (int i = 0; i < length; i++)
+            bytes[i] = b.get(start + i);
+        hash = 0;
+        string = null;
+        return this;
+    }
+
+    @Override public int length() {
+        return length;
+    }
+
+    @Override public char charAt(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        return (char) (bytes[index] & 0xff);
+    }
+
+    @Override public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    public boolean contentEquals(CharSequence s) {
+        if (s == null || s.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if ((bytes[i] & 0xff) != s.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    @Override public boolean equals(Object obj) {
+        return obj instanceof CharSequence && contentEquals((CharSequence) obj);
+    }
+
+    @Override public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            for (int i = 0; i < length; i++)
+                result = 31 * result + (bytes[i] & 0xff);
+            hash = result;
+        }
+        return result;
+    }
+
+    @Override public String toString() {
+        String result = string;
+        if (result == null) {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++)
+                chars[i] = (char) (bytes[i] & 0xff);
+            string = result = new String(chars);
+        }
+        return result;
+    }
+}
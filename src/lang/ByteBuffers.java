@@ -0,0 +1,48 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lang;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class ByteBuffers {
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * Returns the index of the first occurrence of <code>value</code> in range
+     * [start, end) of the buffer or -1 if there is none. The range is scanned
+     * eight bytes at a time, which pays off for long values such as text
+     * fields.
+     */
+    public static int indexOf(ByteBuffer b, int start, int end, byte value) {
+        long pattern = (value & 0xffL) * ONES;
+        boolean bigEndian = b.order() == ByteOrder.BIG_ENDIAN;
+        int i = start;
+        for (; end - i >= 8; i += 8) {
+            long word = b.getLong(i) ^ pattern;
+            /* High bit of every byte that is zero, without carries between bytes.  */
+            long zeros = ~(((word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | word | LOW_SEVEN_BITS);
+            if (zeros != 0)
+                return i + ((bigEndian ? Long.numberOfLeadingZeros(zeros) : Long.numberOfTrailingZeros(zeros)) >>> 3);
+        }
+        for (; i < end; i++) {
+            if (b.get(i) == value)
+                return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lang;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for fixed-point decimals represented as a <code>long</code>
+ * mantissa and a scale, that is, the value is <code>mantissa * 10^-scale</code>.
+ */
+public class Decimals {
+    public static final int MAX_SCALE = 18;
+
+    /**
+     * Returned by {@link #parse(ByteBuffer, int, int, int)} when the bytes
+     * are not a decimal or the value does not fit. No decimal parses to it.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    public static long pow10(int scale) {
+        return POWERS_OF_TEN[scale];
+    }
+
+    public static double toDouble(long mantissa, int scale) {
+        return (double) mantissa / POWERS_OF_TEN[scale];
+    }
+
+    /**
+     * Parses the decimal in range [start, end) of the buffer as a mantissa
+     * with <code>scale</code> fraction digits, for example a price in ticks.
+     * Extra fraction digits are truncated. Returns {@link #INVALID} if the
+     * bytes are not a decimal or the mantissa does not fit in a
+     * <code>long</code>.
+     */
+    public static long parse(ByteBuffer b, int start, int end, int scale) {
+        int i = start;
+        boolean negative = i < end && b.get(i) == '-';
+        if (negative)
+            i++;
+        long result = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            int ch = b.get(i);
+            if (ch == '.') {
+                if (fraction >= 0)
+                    return INVALID;
+                fraction = 0;
+                continue;
+            }
+            if (ch < '0' || ch > '9')
+                return INVALID;
+            digits++;
+            if (fraction == scale)
+                continue;
+            if (result > (Long.MAX_VALUE - (ch - '0')) / 10)
+                return INVALID;
+            result = result * 10 + (ch - '0');
+            if (fraction >= 0)
+                fraction++;
+        }
+        if (digits == 0)
+            return INVALID;
+        long factor = POWERS_OF_TEN[scale - Math.max(fraction, 0)];
+        if (result > Long.MAX_VALUE / factor)
+            return INVALID;
+        result *= factor;
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parses the decimal in range [start, end) of the buffer as a
+     * <code>double</code>. Digits beyond the precision of a
+     * <code>long</code> mantissa are dropped. Returns {@link Double#NaN} if
+     * the bytes are not a decimal.
+     */
+    public static double parseDouble(ByteBuffer b, int start, int end) {
+        int i = start;
+        boolean negative = i < end && b.get(i) == '-';
+        if (negative)
+            i++;
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            int ch = b.get(i);
+            if (ch == '.' && !point) {
+                point = true;
+                continue;
+            }
+            if (ch < '0' || ch > '9')
+                return Double.NaN;
+            digits++;
+            if (mantissa < POWERS_OF_TEN[MAX_SCALE - 1]) {
+                mantissa = mantissa * 10 + (ch - '0');
+                if (point)
+                    scale++;
+            } else if (!point) {
+                scale--;
+            }
+        }
+        if (digits == 0)
+            return Double.NaN;
+        double result = scale >= 0 && scale <= MAX_SCALE ? toDouble(mantissa, scale) : mantissa / Math.pow(10, scale);
+        return negative ? -result : result;
+    }
+
+    /**
+     * Appends the decimal to <code>sb</code> with at least
+     * <code>minScale</code> fraction digits. Trailing zeros beyond
+     * <code>minScale</code> are dropped.
+     */
+    public static void append(StringBuilder sb, long mantissa, int scale, int minScale) {
+        while (scale > minScale && mantissa % 10 == 0) {
+            mantissa /= 10;
+            scale--;
+        }
+        if (mantissa < 0)
+            sb.append('-');
+        long integer = Math.abs(mantissa / POWERS_OF_TEN[scale]);
+        long fraction = Math.abs(mantissa % POWERS_OF_TEN[scale]);
+        sb.append(integer);
+        if (scale == 0 && minScale == 0)
+            return;
+        sb.append('.');
+        for (int i = scale - 1; i >= 0; i--)
+            sb.append((char) ('0' + fraction / POWERS_OF_TEN[i] % 10));
+        for (int i = scale; i < minScale; i++)
+            sb.append('0');
+    }
+
+    /**
+     * Writes the decimal at the buffer's position like
+     * {@link #append(StringBuilder, long, int, int)}.
+     */
+    public static void put(ByteBuffer b, long mantissa, int scale, int minScale) {
+        while (scale > minScale && mantissa % 10 == 0) {
+            mantissa /= 10;
+            scale--;
+        }
+        if (mantissa < 0)
+            b.put((byte) '-');
+        Integers.put(b, Math.abs(mantissa / POWERS_OF_TEN[scale]));
+        if (scale == 0 && minScale == 0)
+            return;
+        b.put((byte) '.');
+        long fraction = Math.abs(mantissa % POWERS_OF_TEN[scale]);
+        for (int i = scale - 1; i >= 0; i--)
+            b.put((byte) ('0' + fraction / POWERS_OF_TEN[i] % 10));
+        for (int i = scale; i < minScale; i++)
+            b.put((byte) '0');
+    }
+}
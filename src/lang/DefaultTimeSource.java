@@ -25,4 +25,9 @@ public class DefaultTimeSource implements TimeSource {
     public DateTime currentTime() {
         return new DateTime(System.currentTimeMillis());
     }
+
+    @Override
+    public long currentTimeMicros() {
+        return System.currentTimeMillis() * 1000;
+    }
 }
@@ -15,6 +15,8 @@
  */
 package lang;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Pekka Enberg 
  */
@@ -28,4 +30,75 @@ public class Integers {
         result.append(s);
         return result.toString();
     }
+
+    /**
+     * Returned by {@link #tryParseInt(ByteBuffer, int, int)} when the bytes
+     * are not a decimal integer. It is outside the range of <code>int</code>.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * Parses a decimal integer from the bytes in range [start, end) of the
+     * buffer without creating intermediate objects.
+     */
+    public static int parseInt(ByteBuffer b, int start, int end) {
+        long result = tryParseInt(b, start, end);
+        if (result == INVALID)
+            throw new NumberFormatException("Invalid integer");
+        return (int) result;
+    }
+
+    /**
+     * Like {@link #parseInt(ByteBuffer, int, int)} but returns
+     * {@link #INVALID} instead of throwing.
+     */
+    public static long tryParseInt(ByteBuffer b, int start, int end) {
+        if (start == end)
+            return INVALID;
+        int i = start;
+        boolean negative = b.get(i) == '-';
+        if (negative && ++i == end)
+            return INVALID;
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; i < end; i++) {
+            int digit = b.get(i) - '0';
+            if (digit < 0 || digit > 9)
+                return INVALID;
+            if (result < limit / 10)
+                return INVALID;
+            result *= 10;
+            if (result < limit + digit)
+                return INVALID;
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Writes the decimal digits of <code>value</code> at the buffer's
+     * position and advances the position past them.
+     */
+    public static void put(ByteBuffer b, long value) {
+        if (value < 0)
+            b.put((byte) '-');
+        else
+            value = -value;
+        int end = b.position() + digits(value);
+        for (int i = end - 1; i >= b.position(); i--) {
+            b.put(i, (byte) ('0' - value % 10));
+            value /= 10;
+        }
+        b.position(end);
+    }
+
+    /* Number of digits in a non-positive value.  */
+    private static int digits(long negative) {
+        int result = 1;
+        while (negative <= -10) {
+            negative /= 10;
+            result++;
+        }
+        return result;
+    }
 }
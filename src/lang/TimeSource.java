@@ -22,4 +22,10 @@ import org.joda.time.DateTime;
  */
 public interface TimeSource {
     DateTime currentTime();
+
+    /**
+     * Returns the current time in microseconds since the epoch without
+     * creating a {@link DateTime}.
+     */
+    long currentTimeMicros();
 }
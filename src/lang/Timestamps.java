@@ -0,0 +1,202 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lang;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for UTC timestamps in the <code>YYYYMMDD-HH:MM:SS[.sss[sss]]</code>
+ * format as microseconds since the epoch. Calendar arithmetic is done by
+ * hand so that neither parsing nor printing allocates.
+ */
+public class Timestamps {
+    public static final long INVALID = Long.MIN_VALUE;
+
+    public static final int SECONDS = 0;
+    public static final int MILLIS = 3;
+    public static final int MICROS = 6;
+
+    private static final int SECONDS_LENGTH = 17;
+    private static final long MICROS_PER_SECOND = 1000000L;
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    /**
+     * Returns the fraction precision of a timestamp with the given length or
+     * -1 if no timestamp has that length.
+     */
+    public static int precision(int length) {
+        switch (length) {
+        case SECONDS_LENGTH:
+            return SECONDS;
+        case SECONDS_LENGTH + 1 + MILLIS:
+            return MILLIS;
+        case SECONDS_LENGTH + 1 + MICROS:
+            return MICROS;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * Parses the timestamp in range [start, end) of the buffer, or returns
+     * {@link #INVALID} if it is not a valid timestamp. A leap second (second
+     * 60) is accepted and maps to the first second of the next minute.
+     */
+    public static long parse(ByteBuffer b, int start, int end) {
+        int precision = precision(end - start);
+        if (precision < 0)
+            return INVALID;
+        if (b.get(start + 8) != '-' || b.get(start + 11) != ':' || b.get(start + 14) != ':')
+            return INVALID;
+        if (precision > 0 && b.get(start + SECONDS_LENGTH) != '.')
+            return INVALID;
+        return toMicros(digits(b, start, 4), digits(b, start + 4, 2), digits(b, start + 6, 2),
+                digits(b, start + 9, 2), digits(b, start + 12, 2), digits(b, start + 15, 2),
+                precision > 0 ? digits(b, start + SECONDS_LENGTH + 1, precision) : 0, precision);
+    }
+
+    public static long parse(String s) {
+        byte[] bytes = s.getBytes();
+        return parse(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    private static int digits(ByteBuffer b, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = b.get(i) - '0';
+            if (digit < 0 || digit > 9)
+                return -1;
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static long toMicros(int year, int month, int day, int hour, int minute, int second, int fraction, int precision) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month))
+            return INVALID;
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60 || fraction < 0)
+            return INVALID;
+        long seconds = daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+        return seconds * MICROS_PER_SECOND + fraction * (precision == MILLIS ? 1000 : 1);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+        case 2:
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        case 4: case 6: case 9: case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    /* Days since 1970-01-01 in the proleptic Gregorian calendar.  */
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Appends the timestamp with <code>precision</code> fraction digits. Finer
+     * fractions are truncated.
+     */
+    public static void append(StringBuilder sb, long micros, int precision) {
+        long seconds = floorDiv(micros, MICROS_PER_SECOND);
+        int fraction = (int) (micros - seconds * MICROS_PER_SECOND);
+        long days = floorDiv(seconds, SECONDS_PER_DAY);
+        int secondOfDay = (int) (seconds - days * SECONDS_PER_DAY);
+        long date = civilFromDays(days);
+
+        pad(sb, date, 8);
+        sb.append('-');
+        pad(sb, secondOfDay / 3600, 2);
+        sb.append(':');
+        pad(sb, secondOfDay / 60 % 60, 2);
+        sb.append(':');
+        pad(sb, secondOfDay % 60, 2);
+        if (precision == MILLIS) {
+            sb.append('.');
+            pad(sb, fraction / 1000, 3);
+        } else if (precision == MICROS) {
+            sb.append('.');
+            pad(sb, fraction, 6);
+        }
+    }
+
+    /**
+     * Writes the timestamp at the buffer's position like
+     * {@link #append(StringBuilder, long, int)}.
+     */
+    public static void put(ByteBuffer b, long micros, int precision) {
+        long seconds = floorDiv(micros, MICROS_PER_SECOND);
+        int fraction = (int) (micros - seconds * MICROS_PER_SECOND);
+        long days = floorDiv(seconds, SECONDS_PER_DAY);
+        int secondOfDay = (int) (seconds - days * SECONDS_PER_DAY);
+        long date = civilFromDays(days);
+
+        pad(b, date, 8);
+        b.put((byte) '-');
+        pad(b, secondOfDay / 3600, 2);
+        b.put((byte) ':');
+        pad(b, secondOfDay / 60 % 60, 2);
+        b.put((byte) ':');
+        pad(b, secondOfDay % 60, 2);
+        if (precision == MILLIS) {
+            b.put((byte) '.');
+            pad(b, fraction / 1000, 3);
+        } else if (precision == MICROS) {
+            b.put((byte) '.');
+            pad(b, fraction, 6);
+        }
+    }
+
+    /* Returns the date as YYYYMMDD.  */
+    private static long civilFromDays(long days) {
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long day = doy - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    private static void pad(StringBuilder sb, long value, int width) {
+        for (long limit = Decimals.pow10(width - 1); limit > 1 && value < limit; limit /= 10)
+            sb.append('0');
+        sb.append(value);
+    }
+
+    private static void pad(ByteBuffer b, long value, int width) {
+        for (int i = width - 1; i >= 0; i--)
+            b.put((byte) ('0' + value / Decimals.pow10(i) % 10));
+    }
+
+    private static long floorDiv(long x, long y) {
+        long result = x / y;
+        if ((x % y != 0) && ((x < 0) != (y < 0)))
+            result--;
+        return result;
+    }
+}
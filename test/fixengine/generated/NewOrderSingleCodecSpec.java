@@ -0,0 +1,225 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.generated;
+
+import java.nio.ByteBuffer;
+
+import jdave.Block;
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+import lang.Timestamps;
+
+import org.junit.runner.RunWith;
+
+import fixengine.messages.RawMessageBuilder;
+import fixengine.messages.SessionRejectReasonValue;
+
+@RunWith(JDaveRunner.class)
+public class NewOrderSingleCodecSpec extends Specification<NewOrderSingleDecoder> {
+    private static final long TRANSACT_TIME = Timestamps.parse("20100701-12:09:40.123");
+
+    private final NewOrderSingleEncoder encoder = new NewOrderSingleEncoder();
+    private final NewOrderSingleDecoder decoder = new NewOrderSingleDecoder();
+    private final ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    public class EncodedMessage {
+        public NewOrderSingleDecoder create() {
+            encoder.setClOrdID("123")
+                .setHandlInst('1')
+                .setSymbol("ABC")
+                .setSide('1')
+                .setTransactTime(TRANSACT_TIME, Timestamps.MILLIS)
+                .setOrderQty(1000, 0)
+                .setOrdType('2')
+                .setPrice(10125, 3)
+                .encodeBody(buffer);
+            specify(decoder.wrap(buffer, 0, buffer.position()), must.equal(true));
+            return decoder;
+        }
+
+        public void encodesFieldsInDeclarationOrder() {
+            specify(string(buffer), must.equal("11=123|21=1|55=ABC|54=1|60=20100701-12:09:40.123|38=1000|40=2|44=10.125|"));
+        }
+
+        public void decodesPrimitiveValues() {
+            specify(decoder.getClOrdID(), must.equal("123"));
+            specify(decoder.getSide(), must.equal('1'));
+            specify(decoder.getTransactTime(), must.equal(TRANSACT_TIME));
+            specify(decoder.getOrderQty(0), must.equal(1000L));
+            specify(decoder.getPrice(4), must.equal(101250L));
+            specify(decoder.getPriceAsDouble(), must.equal(10.125));
+        }
+
+        public void reportsAbsentOptionalFields() {
+            specify(decoder.hasAccount(), must.equal(false));
+            specify(decoder.hasText(), must.equal(false));
+            specify(decoder.getText(), must.equal(null));
+        }
+
+    }
+
+    public class AbsentOptionalField {
+        public NewOrderSingleDecoder create() {
+            specify(decoder.wrap(body(required()), 0, buffer.limit()), must.equal(true));
+            return decoder;
+        }
+
+        public void raisesOnNumericAccess() {
+            specify(decoder.hasPrice(), must.equal(false));
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    decoder.getPrice(2);
+                }
+            }, must.raise(IllegalStateException.class));
+        }
+    }
+
+    public class MissingRequiredField {
+        public void isRejectedByDecoder() {
+            specify(decoder.wrap(body(new RawMessageBuilder().field(11, "123").field(21, "1")), 0, buffer.limit()), must.equal(false));
+            specify(decoder.getRejectReason(), must.equal(SessionRejectReasonValue.TAG_MISSING));
+            specify(decoder.getRejectTag(), must.equal(55));
+        }
+
+        public void isRejectedByEncoder() {
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    encoder.reset();
+                    encoder.setClOrdID("123").encodeBody(buffer);
+                }
+            }, must.raise(IllegalStateException.class));
+        }
+    }
+
+    public class RepeatedTag {
+        public void isRejected() {
+            specify(decoder.wrap(body(required().field(55, "DEF")), 0, buffer.limit()), must.equal(false));
+            specify(decoder.getRejectReason(), must.equal(SessionRejectReasonValue.TAG_MULTIPLE_TIMES));
+            specify(decoder.getRejectTag(), must.equal(55));
+        }
+    }
+
+    public class UndefinedTag {
+        public void isRejected() {
+            specify(decoder.wrap(body(required().field(9898, "X")), 0, buffer.limit()), must.equal(false));
+            specify(decoder.getRejectReason(), must.equal(SessionRejectReasonValue.INVALID_TAG));
+            specify(decoder.getRejectTag(), must.equal(9898));
+        }
+    }
+
+    public class HeaderTagInBody {
+        public void isRejected() {
+            specify(decoder.wrap(body(required().field(52, "20100701-12:09:40")), 0, buffer.limit()), must.equal(false));
+            specify(decoder.getRejectReason(), must.equal(SessionRejectReasonValue.OUT_OF_ORDER_TAG));
+            specify(decoder.getRejectTag(), must.equal(52));
+        }
+    }
+
+    public class InvalidValueFormat {
+        public void isRejectedForDecimal() {
+            specify(decoder.wrap(body(required().field(38, "1.2.3")), 0, buffer.limit()), must.equal(false));
+            specify(decoder.getRejectReason(), must.equal(SessionRejectReasonValue.INVALID_VALUE_FORMAT));
+            specify(decoder.getRejectTag(), must.equal(38));
+        }
+
+        public void isRejectedForChar() {
+            specify(decoder.wrap(body(required().field(59, "12")), 0, buffer.limit()), must.equal(false));
+            specify(decoder.getRejectReason(), must.equal(SessionRejectReasonValue.INVALID_VALUE_FORMAT));
+            specify(decoder.getRejectTag(), must.equal(59));
+        }
+
+        public void isRejectedForSignWithoutDigits() {
+            specify(decoder.wrap(body(required().field(44, "-")), 0, buffer.limit()), must.equal(false));
+            specify(decoder.getRejectReason(), must.equal(SessionRejectReasonValue.INVALID_VALUE_FORMAT));
+            specify(decoder.getRejectTag(), must.equal(44));
+        }
+    }
+
+    public class DecimalOutOfRange {
+        public void raisesWhenScaled() {
+            specify(decoder.wrap(body(required().field(38, "9223372036854775807")), 0, buffer.limit()), must.equal(true));
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    decoder.getOrderQty(2);
+                }
+            }, must.raise(ArithmeticException.class));
+        }
+    }
+
+    public class RepeatingGroup {
+        public void decodesInstances() {
+            RawMessageBuilder raw = required().field(78, "2").field(79, "A").field(80, "10").field(79, "B").field(80, "20");
+            specify(decoder.wrap(body(raw), 0, buffer.limit()), must.equal(true));
+            specify(decoder.getNoAllocs(), must.equal(2));
+            specify(decoder.getNoAllocsInstance(0).getAllocAccount(), must.equal("A"));
+            specify(decoder.getNoAllocsInstance(0).getAllocShares(0), must.equal(10L));
+            specify(decoder.getNoAllocsInstance(1).getAllocAccount(), must.equal("B"));
+            specify(decoder.getNoAllocsInstance(1).getAllocShares(0), must.equal(20L));
+        }
+
+        public void rejectsMemberOutsideGroup() {
+            specify(decoder.wrap(body(required().field(79, "A")), 0, buffer.limit()), must.equal(false));
+            specify(decoder.getRejectReason(), must.equal(SessionRejectReasonValue.OUT_OF_ORDER_GROUP_FIELD));
+            specify(decoder.getRejectTag(), must.equal(79));
+        }
+
+        public void rejectsCountMismatch() {
+            RawMessageBuilder raw = required().field(78, "2").field(79, "A").field(80, "10");
+            specify(decoder.wrap(body(raw), 0, buffer.limit()), must.equal(false));
+            specify(decoder.getRejectReason(), must.equal(SessionRejectReasonValue.NUM_IN_GROUP_MISMATCH));
+            specify(decoder.getRejectTag(), must.equal(78));
+        }
+
+        public void encodesInstancesAfterCount() {
+            encoder.setClOrdID("123")
+                .setHandlInst('1')
+                .setSymbol("ABC")
+                .setSide('1')
+                .setTransactTime(TRANSACT_TIME, Timestamps.MILLIS)
+                .setOrdType('1');
+            encoder.addNoAllocs().setAllocAccount("A").setAllocShares(10, 0);
+            encoder.addNoAllocs().setAllocAccount("B");
+            encoder.encodeBody(buffer);
+            specify(string(buffer), must.equal("11=123|78=2|79=A|80=10|79=B|21=1|55=ABC|54=1|60=20100701-12:09:40.123|40=1|"));
+            specify(decoder.wrap(buffer, 0, buffer.position()), must.equal(true));
+            specify(decoder.getNoAllocsInstance(1).hasAllocShares(), must.equal(false));
+        }
+    }
+
+    private RawMessageBuilder required() {
+        return new RawMessageBuilder()
+            .field(11, "123")
+            .field(21, "1")
+            .field(55, "ABC")
+            .field(54, "1")
+            .field(60, "20100701-12:09:40")
+            .field(40, "1");
+    }
+
+    private ByteBuffer body(RawMessageBuilder raw) {
+        buffer.clear();
+        buffer.put(silvertip.Message.fromString(raw.toString()).toByteBuffer());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String string(ByteBuffer b) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < b.position(); i++)
+            sb.append(b.get(i) == '\001' ? '|' : (char) b.get(i));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(JDaveRunner.class)
+public class FrameAssemblerSpec extends Specification<FrameAssembler> {
+    private static final String FRAME = "8=FIX.4.2\0019=57\00135=0\00149=Sender\00156=Target\001" +
+            "34=1\00152=20100701-12:09:40\001112=1\00110=206\001";
+
+    private final FrameAssembler assembler = new FrameAssembler(32, 4096);
+    private final List<String> frames = new ArrayList<String>();
+    private int garbled;
+
+    private final FrameAssembler.Callback callback = new FrameAssembler.Callback() {
+        @Override public void frame(ByteBuffer frame) {
+            byte[] bytes = new byte[frame.remaining()];
+            frame.get(bytes);
+            frames.add(new String(bytes));
+        }
+
+        @Override public void garbled(int length) {
+            garbled += length;
+        }
+    };
+
+    public class FramesSplitAcrossReads {
+        public void areAssembled() {
+            for (int i = 0; i < FRAME.length(); i += 5)
+                consume(FRAME.substring(i, Math.min(i + 5, FRAME.length())));
+            specify(frames.size(), must.equal(1));
+            specify(frames.get(0), must.equal(FRAME));
+        }
+    }
+
+    public class ManyFramesInOneRead {
+        public void areAllEmitted() {
+            consume(FRAME + FRAME + FRAME.substring(0, 20));
+            specify(frames.size(), must.equal(2));
+            consume(FRAME.substring(20));
+            specify(frames.size(), must.equal(3));
+            specify(frames.get(2), must.equal(FRAME));
+        }
+    }
+
+    public class GarbageBetweenFrames {
+        public void isSkipped() {
+            consume("garbage" + FRAME + "8=FIX.4.2\0019=XX\001" + FRAME);
+            specify(frames.size(), must.equal(2));
+            specify(frames.get(1), must.equal(FRAME));
+            specify(garbled, must.equal(7 + 15));
+        }
+    }
+
+    public class FrameWithInvalidBodyLength {
+        public void isSkipped() {
+            consume(FRAME.replace("9=57", "9=56") + FRAME);
+            specify(frames.size(), must.equal(1));
+            specify(frames.get(0), must.equal(FRAME));
+        }
+    }
+
+    private void consume(String s) {
+        assembler.consume(ByteBuffer.wrap(s.getBytes()), callback);
+    }
+}
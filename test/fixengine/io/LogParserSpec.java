@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+import fixengine.messages.Message;
+import fixengine.messages.MsgTypeValue;
+
+@RunWith(JDaveRunner.class)
+public class LogParserSpec extends Specification<LogParser> {
+    private static final String FRAME = "8=FIX.4.2\0019=57\00135=0\00149=Sender\00156=Target\001" +
+            "34=1\00152=20100701-12:09:40\001112=1\00110=206\001\n";
+    private static final String GARBLED = "8=FIX.4.2\0019=XX\001\n";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final LogParser parser = new LogParser(executor, 100);
+    private final List<Long> offsets = Collections.synchronizedList(new ArrayList<Long>());
+    private final List<Long> invalid = Collections.synchronizedList(new ArrayList<Long>());
+    private File file;
+
+    private final LogParser.Callback callback = new LogParser.Callback() {
+        @Override public void message(long offset, Message m) {
+            specify(m.getMsgType(), must.equal(MsgTypeValue.HEARTBEAT.value()));
+            offsets.add(offset);
+        }
+
+        @Override public void invalidMessage(long offset, String text) {
+            invalid.add(offset);
+        }
+    };
+
+    public class LogWithManyFrames {
+        public LogParser create() throws IOException {
+            StringBuilder log = new StringBuilder();
+            for (int i = 0; i < 50; i++)
+                log.append(FRAME);
+            file = write(log.toString());
+            return parser;
+        }
+
+        public void destroy() {
+            file.delete();
+            executor.shutdown();
+        }
+
+        public void deliversMessagesInFileOrder() throws IOException {
+            parser.parse(file, callback);
+            specify(offsets.size(), must.equal(50));
+            for (int i = 0; i < offsets.size(); i++)
+                specify(offsets.get(i), must.equal((long) i * FRAME.length()));
+        }
+
+        public void deliversAllMessagesUnordered() throws IOException {
+            parser.parseUnordered(file, callback);
+            specify(offsets.size(), must.equal(50));
+            Collections.sort(offsets);
+            specify(offsets.get(49), must.equal(49L * FRAME.length()));
+        }
+    }
+
+    public class LogWithBeginStringInFieldValues {
+        private final String frame = frame("A 8=FIX.4.2 8=FIX.4.2 8=FIX.4.2 8=FIX.4.2 8=FIX.4.2 8=FIX.4.2");
+
+        public LogParser create() throws IOException {
+            StringBuilder log = new StringBuilder();
+            for (int i = 0; i < 50; i++)
+                log.append(frame);
+            file = write(log.toString());
+            return parser;
+        }
+
+        public void destroy() {
+            file.delete();
+            executor.shutdown();
+        }
+
+        public void splitsChunksOnlyAtFrameBoundaries() throws IOException {
+            parser.parse(file, callback);
+            specify(invalid.size(), must.equal(0));
+            specify(offsets.size(), must.equal(50));
+            for (int i = 0; i < offsets.size(); i++)
+                specify(offsets.get(i), must.equal((long) i * frame.length()));
+        }
+    }
+
+    public class LogWithGarbledFrame {
+        public LogParser create() throws IOException {
+            file = write(FRAME + GARBLED + FRAME);
+            return parser;
+        }
+
+        public void destroy() {
+            file.delete();
+            executor.shutdown();
+        }
+
+        public void reportsItsOffset() throws IOException {
+            parser.parse(file, callback);
+            specify(offsets.size(), must.equal(2));
+            specify(invalid.size(), must.equal(1));
+            specify(invalid.get(0), must.equal((long) FRAME.length()));
+        }
+    }
+
+    private static String frame(String testReqId) {
+        String body = "35=0\00149=Sender\00156=Target\00134=1\00152=20100701-12:09:40\001112=" + testReqId + "\001";
+        String frame = "8=FIX.4.2\0019=" + body.length() + "\001" + body;
+        int checksum = 0;
+        for (int i = 0; i < frame.length(); i++)
+            checksum += frame.charAt(i);
+        return frame + "10=" + String.format("%03d", checksum % 256) + "\001\n";
+    }
+
+    private static File write(String content) throws IOException {
+        File result = File.createTempFile("fixengine", ".log");
+        OutputStream out = new FileOutputStream(result);
+        try {
+            out.write(content.getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+        return result;
+    }
+}
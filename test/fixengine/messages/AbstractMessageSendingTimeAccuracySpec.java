@@ -86,4 +86,22 @@ public class AbstractMessageSendingTimeAccuracySpec extends Specification<Abstra
             specify(message.hasOrigSendTimeAfterSendingTime(), must.equal(false));
         }
     }
-}
\ No newline at end of file
+
+    public class MessageWithSendingTimeInMicros {
+        private final long sendingTime = 1278000000L * 1000000;
+
+        public AbstractMessage create() {
+            message.setSendingTime(sendingTime);
+            return message;
+        }
+
+        public void hasSameSendingTimeAsDateTime() {
+            specify(message.getSendingTime(), must.equal(new DateTime(sendingTime / 1000)));
+        }
+
+        public void hasAccurateSendingTimeWithinTwoMinutes() {
+            specify(message.hasAccurateSendingTime(sendingTime + 60 * 1000000L), must.equal(true));
+            specify(message.hasAccurateSendingTime(sendingTime + 180 * 1000000L), must.equal(false));
+        }
+    }
+}
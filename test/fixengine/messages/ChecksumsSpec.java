@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(JDaveRunner.class)
+public class ChecksumsSpec extends Specification<Void> {
+    private static final String MESSAGE = "8=FIX.4.2\0019=57\00135=0\00149=Sender\00156=Target\001" +
+            "34=1\00152=20100701-12:09:40\001112=1\001";
+
+    public class AnyBuffer {
+        private final ByteBuffer b = ByteBuffer.wrap(MESSAGE.getBytes());
+
+        public void sumsBytesModulo256() {
+            specify(Checksums.checksum(b, MESSAGE.length()), must.equal(206));
+        }
+
+        public void sumsUnalignedRanges() {
+            specify(Checksums.sum(b, 3, 12, 0), must.equal(bytewiseSum(3, 12)));
+        }
+
+        public void foldsRunningSumAcrossSegments() {
+            int sum = Checksums.sum(b, 0, 17, 0);
+            sum = Checksums.sum(b, 17, MESSAGE.length(), sum);
+            specify(sum % 256, must.equal(206));
+        }
+
+        public void treatsBytesAsUnsigned() {
+            ByteBuffer high = ByteBuffer.wrap(new byte[] { (byte) 0xff, (byte) 0x80, 1, 2, 3, 4, 5, 6, 7 });
+            specify(Checksums.sum(high, 0, 9, 0), must.equal(0xff + 0x80 + 28));
+        }
+
+        private int bytewiseSum(int start, int end) {
+            int result = 0;
+            for (int i = start; i < end; i++)
+                result += MESSAGE.charAt(i);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import jdave.Block;
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+import fixengine.tags.ClOrdID;
+import fixengine.tags.OrdType;
+import fixengine.tags.Price;
+import fixengine.tags.Symbol;
+import fixengine.tags.Text;
+
+@RunWith(JDaveRunner.class)
+public class FieldPresenceSpec extends Specification<FieldContainer> {
+    private final FieldContainer container = new FieldContainer() {
+        {
+            field(ClOrdID.TAG);
+            field(Symbol.TAG);
+            field(Text.TAG, Required.NO);
+            field(OrdType.TAG, Required.NO);
+            field(Price.TAG, new Required() {
+                @Override public boolean isRequired() {
+                    return OrdTypeValue.LIMIT.equals(getEnum(OrdType.TAG));
+                }
+            });
+        }
+    };
+
+    public class AllRequiredFieldsPresent {
+        public FieldContainer create() {
+            parse(new RawMessageBuilder().field(ClOrdID.TAG, "1").field(Symbol.TAG, "GOOG"));
+            return container;
+        }
+
+        public void hasNoMissingField() {
+            specify(container.missingField(), must.equal(null));
+            specify(container.missingConditionalField(), must.equal(null));
+        }
+    }
+
+    public class RequiredFieldMissing {
+        public void isReported() {
+            parse(new RawMessageBuilder().field(ClOrdID.TAG, "1").field(Text.TAG, "x"));
+            specify(container.missingField().prettyName(), must.equal("Symbol(55)"));
+        }
+
+        public void isReportedWhenParsedLazily() {
+            container.parseLazily(buffer(new RawMessageBuilder().field(Symbol.TAG, "GOOG")));
+            specify(container.missingField().prettyName(), must.equal("ClOrdID(11)"));
+        }
+
+        public void isReportedForUnparsedContainer() {
+            specify(container.missingField().prettyName(), must.equal("ClOrdID(11)"));
+        }
+    }
+
+    public class ConditionallyRequiredFieldMissing {
+        public void isReported() {
+            parse(new RawMessageBuilder().field(ClOrdID.TAG, "1").field(Symbol.TAG, "GOOG").field(OrdType.TAG, "2"));
+            specify(container.missingField(), must.equal(null));
+            specify(container.missingConditionalField().prettyName(), must.equal("Price(44)"));
+        }
+    }
+
+    public class EmptyTag {
+        public void isRejected() {
+            container.parse(buffer(new RawMessageBuilder().field(ClOrdID.TAG, "1").field(Symbol.TAG, "")));
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    container.validate();
+                }
+            }, must.raise(EmptyTagException.class, "Symbol(55): Empty tag"));
+        }
+    }
+
+    private void parse(RawMessageBuilder raw) {
+        container.parse(buffer(raw));
+        container.validate();
+    }
+
+    private static ByteBuffer buffer(RawMessageBuilder raw) {
+        return ByteBuffer.wrap(raw.toString().getBytes());
+    }
+}
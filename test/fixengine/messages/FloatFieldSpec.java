@@ -15,6 +15,9 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
+import jdave.Block;
 import jdave.Specification;
 import jdave.junit4.JDaveRunner;
 
@@ -61,5 +64,41 @@ public class FloatFieldSpec extends Specification<FloatField> {
             field.setValue(10000000.0);
             specify(field.value(), must.equal("10000000.00"));
         }
+
+        public void keepsParsedValuesExact() {
+            field.parse("1234.5678");
+            specify(field.getMantissa(), must.equal(12345678L));
+            specify(field.getScale(), must.equal(4));
+            specify(field.value(), must.equal("1234.5678"));
+        }
+
+        public void parsesFromBuffer() {
+            field.parseValue(ByteBuffer.wrap("-0.05".getBytes()), 0, 5);
+            specify(field.getMantissa(), must.equal(-5L));
+            specify(field.getScale(), must.equal(2));
+        }
+
+        public void formatsTrailingZerosDownToTwoDecimals() {
+            field.parse("23.000");
+            specify(field.value(), must.equal("23.00"));
+        }
+
+        public void failsToParseValueWithoutDigits() {
+            field.parse("-.");
+            specify(field.isFormatValid(), must.equal(false));
+        }
+
+        public void failsToParseSecondDecimalPoint() {
+            field.parse("1.2.3");
+            specify(field.isFormatValid(), must.equal(false));
+        }
+
+        public void rejectsDoublesOutOfMantissaRange() {
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    field.setDouble(1e19);
+                }
+            }, must.raise(IllegalArgumentException.class));
+        }
     }
 }
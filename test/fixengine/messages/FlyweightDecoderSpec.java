@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import jdave.Block;
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+import fixengine.tags.BeginString;
+import fixengine.tags.BodyLength;
+import fixengine.tags.CheckSum;
+import fixengine.tags.MsgSeqNum;
+import fixengine.tags.MsgType;
+import fixengine.tags.PossDupFlag;
+import fixengine.tags.SenderCompID;
+import fixengine.tags.SendingTime;
+import fixengine.tags.TargetCompID;
+import fixengine.tags.TestReqID;
+
+@RunWith(JDaveRunner.class)
+public class FlyweightDecoderSpec extends Specification<FlyweightDecoder> {
+    private final FlyweightDecoder decoder = new FlyweightDecoder();
+
+    public class ValidMessage {
+        public FlyweightDecoder create() {
+            return decoder.wrap(silvertip.Message.fromString(message("57", "206")));
+        }
+
+        public void decodesMsgType() {
+            specify(decoder.getMsgType(), must.equal(MsgTypeValue.HEARTBEAT));
+        }
+
+        public void decodesIntegers() {
+            specify(decoder.getInt(MsgSeqNum.TAG), must.equal(1));
+        }
+
+        public void decodesStrings() {
+            specify(decoder.getString(SenderCompID.TAG), must.equal("Sender"));
+            specify(decoder.getString(TestReqID.TAG), must.equal("1"));
+        }
+
+        public void treatsMissingBooleanAsFalse() {
+            specify(decoder.getBoolean(PossDupFlag.TAG), must.equal(false));
+        }
+
+        public void indexesAllFields() {
+            specify(decoder.size(), must.equal(9));
+        }
+    }
+
+    public class InvalidBodyLength {
+        public void isGarbled() {
+            specify(wrap(message("75", "206")), must.raise(GarbledMessageException.class));
+        }
+
+        public void isGarbledWhenItOverflows() {
+            specify(wrap(message("4294967353", "118")), must.raise(GarbledMessageException.class));
+        }
+    }
+
+    public class InvalidCheckSum {
+        public void isGarbled() {
+            specify(wrap(message("57", "999")), must.raise(GarbledMessageException.class));
+        }
+    }
+
+    private Block wrap(final String raw) {
+        return new Block() {
+            @Override public void run() throws Throwable {
+                decoder.wrap(silvertip.Message.fromString(raw));
+            }
+        };
+    }
+
+    private static String message(String bodyLength, String checkSum) {
+        return new RawMessageBuilder()
+            .field(BeginString.TAG, "FIX.4.2")
+            .field(BodyLength.TAG, bodyLength)
+            .field(MsgType.TAG, "0")
+            .field(SenderCompID.TAG, "Sender")
+            .field(TargetCompID.TAG, "Target")
+            .field(MsgSeqNum.TAG, "1")
+            .field(SendingTime.TAG, "20100701-12:09:40")
+            .field(TestReqID.TAG, "1")
+            .field(CheckSum.TAG, checkSum)
+            .toString();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.runner.RunWith;
+
+import fixengine.tags.ClOrdID;
+import fixengine.tags.OrderQty;
+import fixengine.tags.Side;
+import fixengine.tags.Symbol;
+import fixengine.tags.TestReqID;
+import fixengine.tags.TransactTime;
+
+@RunWith(JDaveRunner.class)
+public class InterestSetSpec extends Specification<InterestSet> {
+    private final InterestSet interests = new InterestSet()
+        .register(MsgTypeValue.ORDER_CANCEL_REQUEST, ClOrdID.TAG, Side.TAG);
+
+    public class RegisteredMessageType {
+        private String raw;
+
+        public InterestSet create() {
+            OrderCancelRequestMessage message = new OrderCancelRequestMessage();
+            header(message);
+            message.setString(ClOrdID.TAG, "ORDER-2");
+            message.setString(Symbol.TAG, "FOO");
+            message.setEnum(Side.TAG, SideValue.BUY);
+            message.setDateTime(TransactTime.TAG, new DateTime(2010, 7, 1, 12, 9, 40, 0, DateTimeZone.UTC));
+            ((FloatField) message.lookup(OrderQty.TAG)).setDouble(100);
+            raw = message.format();
+            return interests;
+        }
+
+        public void decodesFieldsOfInterest() {
+            AbstractMessage message = parse(raw, interests);
+            specify(message.getString(ClOrdID.TAG), must.equal("ORDER-2"));
+            specify(message.getEnum(Side.TAG), must.equal(SideValue.BUY));
+        }
+
+        public void skipsOtherFields() {
+            AbstractMessage message = parse(raw, interests);
+            specify(message.hasValue(Symbol.TAG), must.equal(false));
+            specify(message.hasValue(OrderQty.TAG), must.equal(false));
+        }
+
+        public void doesNotValidateFieldsOutsideInterest() {
+            specify(parse(raw, interests).missingField(), must.equal(null));
+        }
+    }
+
+    public class UnregisteredMessageType {
+        private String raw;
+
+        public InterestSet create() {
+            HeartbeatMessage message = new HeartbeatMessage();
+            header(message);
+            message.setString(TestReqID.TAG, "1");
+            raw = message.format();
+            return interests;
+        }
+
+        public void isParsedInFull() {
+            specify(interests.isRegistered(MsgTypeValue.HEARTBEAT), must.equal(false));
+            specify(parse(raw, interests).getString(TestReqID.TAG), must.equal("1"));
+        }
+    }
+
+    private static void header(Message message) {
+        message.setBeginString("FIX.4.2");
+        message.setSenderCompId("Sender");
+        message.setTargetCompId("Target");
+        message.setMsgSeqNum(1);
+        message.setSendingTime(new DateTime(2010, 7, 1, 12, 9, 40, 0, DateTimeZone.UTC));
+    }
+
+    private static AbstractMessage parse(String raw, InterestSet interests) {
+        final Message[] result = new Message[1];
+        Parser.parse(ByteBuffer.wrap(raw.getBytes()), interests, new Parser.Callback() {
+            @Override public void message(Message m) {
+                result[0] = m;
+            }
+
+            @Override public void invalidMessage(int msgSeqNum, SessionRejectReasonValue reason, String text) {
+                throw new AssertionError(text);
+            }
+
+            @Override public void unsupportedMsgType(String msgType, int msgSeqNum) {
+                throw new AssertionError(msgType);
+            }
+
+            @Override public void invalidMsgType(String msgType, int msgSeqNum) {
+                throw new AssertionError(msgType);
+            }
+
+            @Override public void garbledMessage(String text) {
+                throw new AssertionError(text);
+            }
+        });
+        return (AbstractMessage) result[0];
+    }
+}
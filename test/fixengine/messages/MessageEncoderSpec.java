@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import jdave.Block;
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.runner.RunWith;
+
+import fixengine.tags.ClOrdID;
+import fixengine.tags.OrderQty;
+import fixengine.tags.OrigClOrdID;
+import fixengine.tags.Side;
+import fixengine.tags.Symbol;
+import fixengine.tags.TestReqID;
+import fixengine.tags.TransactTime;
+
+@RunWith(JDaveRunner.class)
+public class MessageEncoderSpec extends Specification<MessageEncoder> {
+    private final MessageEncoder encoder = new MessageEncoder(64);
+
+    public class Heartbeat {
+        private final HeartbeatMessage message = new HeartbeatMessage();
+
+        public MessageEncoder create() {
+            header(message);
+            message.setString(TestReqID.TAG, "1");
+            return encoder;
+        }
+
+        public void encodesLikeFormat() {
+            specify(encode(message), must.equal(message.format()));
+        }
+
+        public void encodesMessagesWithLongerBodyLength() {
+            message.setString(TestReqID.TAG, "a test request identifier that is long enough to need three digits");
+            specify(encode(message), must.equal(message.format()));
+        }
+
+        public void canBeReused() {
+            encode(message);
+            message.setMsgSeqNum(2);
+            message.setPossDupFlag(true);
+            specify(encode(message), must.equal(message.format()));
+        }
+    }
+
+    public class PreEncodedHeaderFields {
+        private final HeartbeatMessage message = new HeartbeatMessage();
+        private final PreEncodedHeader preEncoded = new PreEncodedHeader("FIX.4.2", "Sender", "Target");
+
+        public MessageEncoder create() {
+            message.setMsgSeqNum(1);
+            message.setSendingTime(new DateTime(2010, 7, 1, 12, 9, 40, 0, DateTimeZone.UTC));
+            message.setString(TestReqID.TAG, "1");
+            return encoder;
+        }
+
+        public void areSplicedIntoTheFrame() {
+            String encoded = encode(message, preEncoded);
+            header(message);
+            specify(encoded, must.equal(message.format()));
+        }
+
+        public void replaceTheMessagesOwnValues() {
+            message.setSenderCompId("Other");
+            String encoded = encode(message, preEncoded);
+            header(message);
+            specify(encoded, must.equal(message.format()));
+        }
+
+        public void keepOptionalHeaderFields() {
+            message.setOnBehalfOfCompId("Client");
+            String encoded = encode(message, preEncoded);
+            header(message);
+            specify(encoded, must.equal(message.format()));
+        }
+    }
+
+    public class OtherMessage {
+        private final Message message = mock(Message.class);
+
+        public void cannotUsePreEncodedHeader() {
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    encoder.encode(message, new PreEncodedHeader("FIX.4.2", "Sender", "Target"));
+                }
+            }, must.raise(IllegalArgumentException.class));
+        }
+    }
+
+    public class OrderCancelRequest {
+        private final OrderCancelRequestMessage message = new OrderCancelRequestMessage();
+
+        public MessageEncoder create() {
+            header(message);
+            message.setString(OrigClOrdID.TAG, "ORDER-1");
+            message.setString(ClOrdID.TAG, "ORDER-2");
+            message.setString(Symbol.TAG, "FOO");
+            message.setEnum(Side.TAG, SideValue.BUY);
+            message.setDateTime(TransactTime.TAG, new DateTime(2010, 7, 1, 12, 9, 40, 0, DateTimeZone.UTC));
+            ((FloatField) message.lookup(OrderQty.TAG)).setDecimal(12345, 1);
+            return encoder;
+        }
+
+        public void encodesLikeFormat() {
+            specify(encode(message), must.equal(message.format()));
+        }
+    }
+
+    private String encode(Message message) {
+        return encode(message, null);
+    }
+
+    private String encode(Message message, PreEncodedHeader preEncoded) {
+        ByteBuffer frame = encoder.encode(message, preEncoded);
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        return new String(bytes);
+    }
+
+    private static void header(Message message) {
+        message.setBeginString("FIX.4.2");
+        message.setSenderCompId("Sender");
+        message.setTargetCompId("Target");
+        message.setMsgSeqNum(1);
+        message.setSendingTime(new DateTime(2010, 7, 1, 12, 9, 40, 0, DateTimeZone.UTC));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+import fixengine.tags.BeginString;
+import fixengine.tags.BodyLength;
+import fixengine.tags.CheckSum;
+import fixengine.tags.MsgSeqNum;
+import fixengine.tags.MsgType;
+import fixengine.tags.SenderCompID;
+import fixengine.tags.SendingTime;
+import fixengine.tags.TargetCompID;
+import fixengine.tags.TestReqID;
+
+@RunWith(JDaveRunner.class)
+public class MessagePoolSpec extends Specification<MessagePool> {
+    private final MessagePool pool = new MessagePool();
+
+    public class ReleasedMessage {
+        public void isReusedAfterReset() {
+            Message message = pool.acquire(MsgTypeValue.HEARTBEAT);
+            message.setString(TestReqID.TAG, "1");
+            message.setMsgSeqNum(5);
+            pool.release(message);
+            Message reused = pool.acquire(MsgTypeValue.HEARTBEAT);
+            specify(reused == message);
+            specify(reused.getMsgType(), must.equal("0"));
+            specify(reused.format(), must.equal(new HeartbeatMessage().format()));
+        }
+
+        public void isReleasedOnlyOnce() {
+            Message message = pool.acquire(MsgTypeValue.HEARTBEAT);
+            pool.release(message);
+            pool.release(message);
+            specify(pool.acquire(MsgTypeValue.HEARTBEAT) == message);
+            specify(pool.acquire(MsgTypeValue.HEARTBEAT) != message);
+        }
+    }
+
+    public class ParsedMessage {
+        private final String raw = new RawMessageBuilder()
+            .field(BeginString.TAG, "FIX.4.2")
+            .field(BodyLength.TAG, "57")
+            .field(MsgType.TAG, "0")
+            .field(SenderCompID.TAG, "Sender")
+            .field(TargetCompID.TAG, "Target")
+            .field(MsgSeqNum.TAG, "1")
+            .field(SendingTime.TAG, "20100701-12:09:40")
+            .field(TestReqID.TAG, "1")
+            .field(CheckSum.TAG, "206")
+            .toString();
+
+        public void comesFromPool() {
+            Message pooled = pool.acquire(MsgTypeValue.HEARTBEAT);
+            pooled.setString(TestReqID.TAG, "stale");
+            pool.release(pooled);
+            Message parsed = parse();
+            specify(parsed == pooled);
+            specify(parsed.format(), must.equal(raw));
+        }
+
+        public void canBeParsedAgainAfterRelease() {
+            pool.release(parse());
+            specify(parse().format(), must.equal(raw));
+        }
+
+        public void comesFromPoolByPreParsedMsgType() {
+            Message pooled = pool.acquire(MsgTypeValue.HEARTBEAT);
+            pool.release(pooled);
+            ByteBuffer b = ByteBuffer.wrap(raw.getBytes());
+            PreParsedHeader header = new PreParsedHeader();
+            specify(header.parse(b));
+            Message parsed = parse(b, header);
+            specify(parsed == pooled);
+            specify(parsed.format(), must.equal(raw));
+        }
+
+        private Message parse() {
+            return parse(ByteBuffer.wrap(raw.getBytes()), null);
+        }
+
+        private Message parse(ByteBuffer b, PreParsedHeader header) {
+            final Message[] result = new Message[1];
+            Parser.Callback callback = new Parser.Callback() {
+                @Override public void message(Message m) {
+                    result[0] = m;
+                }
+
+                @Override public void invalidMessage(int msgSeqNum, SessionRejectReasonValue reason, String text) {
+                    throw new AssertionError(text);
+                }
+
+                @Override public void unsupportedMsgType(String msgType, int msgSeqNum) {
+                    throw new AssertionError(msgType);
+                }
+
+                @Override public void invalidMsgType(String msgType, int msgSeqNum) {
+                    throw new AssertionError(msgType);
+                }
+
+                @Override public void garbledMessage(String text) {
+                    throw new AssertionError(text);
+                }
+            };
+            if (header != null)
+                Parser.parse(b, header, pool, callback);
+            else
+                Parser.parse(b, pool, callback);
+            return result[0];
+        }
+    }
+}
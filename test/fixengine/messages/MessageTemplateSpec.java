@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import jdave.Block;
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.runner.RunWith;
+
+import fixengine.tags.ClOrdID;
+import fixengine.tags.ExDestination;
+import fixengine.tags.HandlInst;
+import fixengine.tags.OrdType;
+import fixengine.tags.OrderQty;
+import fixengine.tags.Price;
+import fixengine.tags.Side;
+import fixengine.tags.Symbol;
+import fixengine.tags.TestReqID;
+import fixengine.tags.TransactTime;
+
+@RunWith(JDaveRunner.class)
+public class MessageTemplateSpec extends Specification<MessageTemplate> {
+    private static final DateTime TIME = new DateTime(2010, 7, 1, 12, 9, 40, 0, DateTimeZone.UTC);
+
+    private final MessageEncoder encoder = new MessageEncoder(64);
+    private final PreEncodedHeader preEncoded = new PreEncodedHeader("FIX.4.2", "Sender", "Target");
+
+    public class NewOrderSingle {
+        private MessageTemplate template;
+
+        public MessageTemplate create() {
+            template = new MessageTemplate(order(), ClOrdID.TAG, OrderQty.TAG, Price.TAG);
+            return template;
+        }
+
+        public void encodesThePrototype() {
+            specify(encode(template), must.equal(expected(order())));
+        }
+
+        public void encodesVariableFields() {
+            for (int i = 2; i < 4; i++) {
+                template.setMsgSeqNum(i);
+                template.setString(ClOrdID.TAG, "ORDER-" + i);
+                template.setDecimal(OrderQty.TAG, 100 * i, 0);
+                template.setDouble(Price.TAG, 10.25);
+                NewOrderSingleMessage order = order();
+                order.setMsgSeqNum(i);
+                order.setString(ClOrdID.TAG, "ORDER-" + i);
+                ((FloatField) order.lookup(OrderQty.TAG)).setDecimal(100 * i, 0);
+                ((FloatField) order.lookup(Price.TAG)).setDouble(10.25);
+                specify(encode(template), must.equal(expected(order)));
+            }
+        }
+
+        public void rejectsConstantFields() {
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    template.setString(Symbol.TAG, "BAR");
+                }
+            }, must.raise(IllegalArgumentException.class));
+        }
+    }
+
+    public class OptionalVariableField {
+        private MessageTemplate template;
+
+        public MessageTemplate create() {
+            template = new MessageTemplate(order(), ExDestination.TAG);
+            return template;
+        }
+
+        public void isOmittedWhenClearedWithNull() {
+            template.setString(ExDestination.TAG, null);
+            NewOrderSingleMessage order = order();
+            order.setString(ExDestination.TAG, null);
+            specify(encode(template), must.equal(expected(order)));
+        }
+    }
+
+    public class RepeatedVariableTag {
+        public void isRejected() {
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    new MessageTemplate(order(), ClOrdID.TAG, ClOrdID.TAG);
+                }
+            }, must.raise(IllegalArgumentException.class));
+        }
+    }
+
+    public class UndefinedVariableTag {
+        public void isRejected() {
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    new MessageTemplate(order(), TestReqID.TAG);
+                }
+            }, must.raise(IllegalArgumentException.class));
+        }
+    }
+
+    private static NewOrderSingleMessage order() {
+        NewOrderSingleMessage order = new NewOrderSingleMessage();
+        order.setMsgSeqNum(1);
+        order.setSendingTime(TIME);
+        order.setString(ClOrdID.TAG, "ORDER-1");
+        order.setEnum(HandlInst.TAG, HandlInstValue.AUTOMATED_ORDER_PRIVATE);
+        order.setString(ExDestination.TAG, "XNAS");
+        order.setEnum(Side.TAG, SideValue.BUY);
+        order.setDateTime(TransactTime.TAG, TIME);
+        order.setEnum(OrdType.TAG, OrdTypeValue.LIMIT);
+        order.setString(Symbol.TAG, "FOO");
+        ((FloatField) order.lookup(OrderQty.TAG)).setDecimal(100, 0);
+        ((FloatField) order.lookup(Price.TAG)).setDecimal(1000, 2);
+        return order;
+    }
+
+    private static String expected(Message message) {
+        message.setBeginString("FIX.4.2");
+        message.setSenderCompId("Sender");
+        message.setTargetCompId("Target");
+        return message.format();
+    }
+
+    private String encode(MessageTemplate template) {
+        ByteBuffer frame = encoder.encode(template, preEncoded);
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        return new String(bytes);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(JDaveRunner.class)
+public class ParseExceptionSpec extends Specification<ParseException> {
+    public class AnyParseException {
+        public void hasNoStackTrace() {
+            specify(new GarbledMessageException("Garbled").getStackTrace().length, must.equal(0));
+            specify(new InvalidValueForTagException("X").getStackTrace().length, must.equal(0));
+        }
+
+        public void keepsReason() {
+            ParseException e = new TagMultipleTimesException("Side(54): Tag multiple times");
+            specify(e.getReason(), must.equal(SessionRejectReasonValue.TAG_MULTIPLE_TIMES));
+        }
+    }
+}
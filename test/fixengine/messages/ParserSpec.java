@@ -15,12 +15,16 @@
  */
 package fixengine.messages;
 
+import java.nio.ByteBuffer;
+
 import jdave.Specification;
 import jdave.junit4.JDaveRunner;
 
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.jmock.Expectations;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.runner.RunWith;
 
 @RunWith(JDaveRunner.class)
@@ -46,6 +50,145 @@ public class ParserSpec extends Specification<String> {
         }
     }
 
+    public class FullMessageParsedLazily {
+        public String create() {
+            return raw = message("57", "0")
+                .field(MsgSeqNum, "1")
+                .field(SendingTime, "20100701-12:09:40")
+                .field(TestReqID, "1")
+                .field(CheckSum, "206")
+                .toString();
+        }
+
+        public void parse() {
+            checking(new Expectations() {{
+                one(callback).message(with(new MessageMatcher(raw)));
+            }});
+            Parser.parseLazily(silvertip.Message.fromString(raw), callback);
+        }
+    }
+
+    public class MessageEquality {
+        public String create() {
+            return raw = message("57", "0")
+                .field(MsgSeqNum, "1")
+                .field(SendingTime, "20100701-12:09:40")
+                .field(TestReqID, "1")
+                .field(CheckSum, "206")
+                .toString();
+        }
+
+        public void ignoresLazyParseState() {
+            Capture lazy = new Capture();
+            Capture eager = new Capture();
+            Parser.parseLazily(silvertip.Message.fromString(raw), lazy);
+            Parser.parse(silvertip.Message.fromString(raw), eager);
+            specify(lazy.message, must.equal(eager.message));
+            specify(lazy.message.hashCode(), must.equal(eager.message.hashCode()));
+        }
+
+        public void equalsMessageBuiltWithSetters() {
+            Capture parsed = new Capture();
+            Parser.parse(silvertip.Message.fromString(raw), parsed);
+            HeartbeatMessage built = new HeartbeatMessage();
+            built.setBeginString("FIX.4.2");
+            built.setSenderCompId("Sender");
+            built.setTargetCompId("Target");
+            built.setMsgSeqNum(1);
+            built.setSendingTime(new DateTime(2010, 7, 1, 12, 9, 40, 0, DateTimeZone.UTC));
+            ((StringField) built.lookup(TestReqID)).setValue("1");
+            specify(parsed.message, must.equal(built));
+            specify(parsed.message.hashCode(), must.equal(built.hashCode()));
+        }
+    }
+
+    public class EmptyTagParsedLazily {
+        public String create() {
+            return raw = message("56", "0")
+                .field(MsgSeqNum, "1")
+                .field(SendingTime, "20100701-12:09:40")
+                .field(TestReqID, "")
+                .field(CheckSum, "156")
+                .toString();
+        }
+
+        public void parse() {
+            checking(new Expectations() {{
+                one(callback).invalidMessage(1, SessionRejectReasonValue.EMPTY_TAG, "TestReqID(112): Empty tag");
+            }});
+            Parser.parseLazily(silvertip.Message.fromString(raw), callback);
+        }
+    }
+
+    public class FullMessageAtBufferOffset {
+        public String create() {
+            return raw = message("57", "0")
+                .field(MsgSeqNum, "1")
+                .field(SendingTime, "20100701-12:09:40")
+                .field(TestReqID, "1")
+                .field(CheckSum, "206")
+                .toString();
+        }
+
+        public void parse() {
+            checking(new Expectations() {{
+                one(callback).message(with(new MessageMatcher(raw)));
+            }});
+            ByteBuffer b = ByteBuffer.wrap(("garbage" + raw).getBytes());
+            b.position(7);
+            Parser.parse(b, callback);
+        }
+    }
+
+    public class MessageParsedIntoReusedInstance {
+        private final Message reuse = new HeartbeatMessage();
+
+        public String create() {
+            return raw = message("57", "0")
+                .field(MsgSeqNum, "1")
+                .field(SendingTime, "20100701-12:09:40")
+                .field(TestReqID, "1")
+                .field(CheckSum, "206")
+                .toString();
+        }
+
+        public void parse() {
+            reuse.setMsgSeqNum(5);
+            checking(new Expectations() {{
+                one(callback).message(with(new ReuseMatcher(raw, reuse, true)));
+            }});
+            Parser.parse(ByteBuffer.wrap(raw.getBytes()), reuse, callback);
+        }
+
+        public void parseReportingErrorsThroughParseError() {
+            final Parser.ErrorCallback errorCallback = mock(Parser.ErrorCallback.class);
+            checking(new Expectations() {{
+                one(errorCallback).message(reuse);
+            }});
+            Parser.parse(ByteBuffer.wrap(raw.getBytes()), reuse, new ParseError(), errorCallback);
+        }
+    }
+
+    public class MessageOfOtherTypeNotParsedIntoReusedInstance {
+        private final Message reuse = new TestRequestMessage();
+
+        public String create() {
+            return raw = message("57", "0")
+                .field(MsgSeqNum, "1")
+                .field(SendingTime, "20100701-12:09:40")
+                .field(TestReqID, "1")
+                .field(CheckSum, "206")
+                .toString();
+        }
+
+        public void parse() {
+            checking(new Expectations() {{
+                one(callback).message(with(new ReuseMatcher(raw, reuse, false)));
+            }});
+            Parser.parse(ByteBuffer.wrap(raw.getBytes()), reuse, callback);
+        }
+    }
+
     public class OptionalFieldMissing {
         public String create() {
             return raw = message("51", "0")
@@ -129,6 +272,37 @@ public class ParserSpec extends Specification<String> {
         }
     }
 
+    public class NonNumericValueForNumericEnum {
+        public String create() {
+            return raw = message("63", "A")
+                .field(MsgSeqNum, "1")
+                .field(SendingTime, "20100701-12:09:40")
+                .field(EncryptMethod, "X")
+                .field(HeartBtInt, "30")
+                .field(CheckSum, "026")
+                .toString();
+        }
+
+        public void parse() {
+            expectInvalidMessage(SessionRejectReasonValue.INVALID_VALUE, "EncryptMethod(98): Invalid value");
+        }
+
+        public void reportsReasonAndTagThroughParseError() {
+            final Parser.ErrorCallback errorCallback = mock(Parser.ErrorCallback.class);
+            final ParseError error = new ParseError();
+            checking(new Expectations() {{
+                one(errorCallback).error(error);
+            }});
+            ByteBuffer b = silvertip.Message.fromString(raw).toByteBuffer();
+            PreParsedHeader preParsed = new PreParsedHeader();
+            preParsed.parse(b);
+            Parser.parse(b, preParsed, null, error, errorCallback);
+            specify(error.getReason(), must.equal(SessionRejectReasonValue.INVALID_VALUE));
+            specify(error.getTag(), must.equal(98));
+            specify(error.getMsgSeqNum(), must.equal(1));
+        }
+    }
+
     public class TagMultipleTimes {
         public String create() {
             return raw = message("63", "0")
@@ -577,6 +751,30 @@ public class ParserSpec extends Specification<String> {
         Parser.parse(silvertip.Message.fromString(raw), callback);
     }
 
+    static class Capture implements Parser.Callback {
+        Message message;
+
+        @Override public void message(Message m) {
+            message = m;
+        }
+
+        @Override public void invalidMessage(int msgSeqNum, SessionRejectReasonValue reason, String text) {
+            throw new AssertionError(text);
+        }
+
+        @Override public void unsupportedMsgType(String msgType, int msgSeqNum) {
+            throw new AssertionError(msgType);
+        }
+
+        @Override public void invalidMsgType(String msgType, int msgSeqNum) {
+            throw new AssertionError(msgType);
+        }
+
+        @Override public void garbledMessage(String text) {
+            throw new AssertionError(text);
+        }
+    }
+
     class MessageMatcher extends BaseMatcher<Message> {
       private final String raw;
 
@@ -594,6 +792,21 @@ public class ParserSpec extends Specification<String> {
       }
     }
 
+    class ReuseMatcher extends MessageMatcher {
+      private final Message reuse;
+      private final boolean same;
+
+      public ReuseMatcher(String raw, Message reuse, boolean same) {
+        super(raw);
+        this.reuse = reuse;
+        this.same = same;
+      }
+
+      @Override public boolean matches(Object item) {
+        return super.matches(item) && (item == reuse) == same;
+      }
+    }
+
     // Header and trailer tags
     private static final int BeginString    = 8;
     private static final int BodyLength     = 9;
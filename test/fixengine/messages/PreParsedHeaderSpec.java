@@ -0,0 +1,102 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+import fixengine.tags.BeginString;
+import fixengine.tags.BodyLength;
+import fixengine.tags.CheckSum;
+import fixengine.tags.MsgSeqNum;
+import fixengine.tags.MsgType;
+import fixengine.tags.PossDupFlag;
+import fixengine.tags.SenderCompID;
+import fixengine.tags.SendingTime;
+import fixengine.tags.TargetCompID;
+import fixengine.tags.TestReqID;
+
+@RunWith(JDaveRunner.class)
+public class PreParsedHeaderSpec extends Specification<PreParsedHeader> {
+    private final PreParsedHeader header = new PreParsedHeader();
+
+    public class ValidHeader {
+        private final String raw = new RawMessageBuilder()
+            .field(BeginString.TAG, "FIX.4.2")
+            .field(BodyLength.TAG, "62")
+            .field(MsgType.TAG, "0")
+            .field(SenderCompID.TAG, "Sender")
+            .field(TargetCompID.TAG, "Target")
+            .field(MsgSeqNum.TAG, "17")
+            .field(PossDupFlag.TAG, "Y")
+            .field(SendingTime.TAG, "20100701-12:09:40")
+            .field(TestReqID.TAG, "1")
+            .field(CheckSum.TAG, "000")
+            .toString();
+
+        public PreParsedHeader create() {
+            specify(header.parse(silvertip.Message.fromString(raw).toByteBuffer()), must.equal(true));
+            return header;
+        }
+
+        public void extractsMsgType() {
+            specify(header.getMsgType(), must.equal(MsgTypeValue.HEARTBEAT));
+            specify(header.getMsgTypeString(), must.equal("0"));
+        }
+
+        public void extractsSequencing() {
+            specify(header.hasMsgSeqNum(), must.equal(true));
+            specify(header.getMsgSeqNum(), must.equal(17));
+            specify(header.getPossDupFlag(), must.equal(true));
+        }
+
+        public void matchesCompIds() {
+            specify(header.isSenderCompId("Sender"), must.equal(true));
+            specify(header.isSenderCompId("Target"), must.equal(false));
+            specify(header.getTargetCompId(), must.equal("Target"));
+        }
+
+        public void stopsAtFirstBodyField() {
+            specify(header.getBodyOffset(), must.equal(raw.indexOf("112=")));
+        }
+    }
+
+    public class UnknownMsgType {
+        public void hasNoMsgTypeValue() {
+            String raw = new RawMessageBuilder()
+                .field(BeginString.TAG, "FIX.4.2")
+                .field(BodyLength.TAG, "5")
+                .field(MsgType.TAG, "ZZ")
+                .field(CheckSum.TAG, "000")
+                .toString();
+            specify(header.parse(silvertip.Message.fromString(raw).toByteBuffer()), must.equal(true));
+            specify(header.getMsgType(), must.equal(null));
+            specify(header.getMsgTypeString(), must.equal("ZZ"));
+        }
+    }
+
+    public class MalformedHeader {
+        public void isRejected() {
+            String raw = new RawMessageBuilder()
+                .field(BeginString.TAG, "FIX.4.2")
+                .field(MsgType.TAG, "0")
+                .toString();
+            specify(header.parse(silvertip.Message.fromString(raw).toByteBuffer()), must.equal(false));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import jdave.Block;
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+import fixengine.tags.AllocAccount;
+import fixengine.tags.AllocID;
+import fixengine.tags.AllocShares;
+import fixengine.tags.AllocTransType;
+import fixengine.tags.AvgPx;
+import fixengine.tags.ClOrdID;
+import fixengine.tags.ListID;
+import fixengine.tags.NoAllocs;
+import fixengine.tags.NoOrders;
+import fixengine.tags.NoPartyIds;
+import fixengine.tags.OrderID;
+import fixengine.tags.PartyID;
+import fixengine.tags.PartyRole;
+import fixengine.tags.SecondaryOrderID;
+import fixengine.tags.Shares;
+import fixengine.tags.Side;
+import fixengine.tags.Symbol;
+import fixengine.tags.TradeDate;
+import fixengine.tags.WaveNo;
+
+@RunWith(JDaveRunner.class)
+public class RepeatingGroupSpec extends Specification<FieldContainer> {
+    private final FieldContainer container = new FieldContainer() {
+        {
+            group(new RepeatingGroup(NoAllocs.TAG) {
+                @Override public RepeatingGroupInstance newInstance() {
+                    return new RepeatingGroupInstance(AllocAccount.TAG) {
+                        {
+                            field(AllocShares.TAG);
+                            group(new RepeatingGroup(NoPartyIds.TAG) {
+                                @Override public RepeatingGroupInstance newInstance() {
+                                    return new RepeatingGroupInstance(PartyID.TAG) {
+                                        {
+                                            field(PartyRole.TAG);
+                                        }
+                                    };
+                                }
+                            });
+                        }
+                    };
+                }
+            });
+            field(Symbol.TAG);
+        }
+    };
+
+    public class NestedGroups {
+        private final String raw = new RawMessageBuilder()
+            .field(NoAllocs.TAG, "2")
+            .field(AllocAccount.TAG, "1234")
+            .field(AllocShares.TAG, "900.00")
+            .field(NoPartyIds.TAG, "2")
+            .field(PartyID.TAG, "A")
+            .field(PartyRole.TAG, "1")
+            .field(PartyID.TAG, "B")
+            .field(PartyRole.TAG, "3")
+            .field(AllocAccount.TAG, "2345")
+            .field(AllocShares.TAG, "100.00")
+            .field(NoPartyIds.TAG, "1")
+            .field(PartyID.TAG, "C")
+            .field(PartyRole.TAG, "1")
+            .field(Symbol.TAG, "GOOG")
+            .toString();
+
+        public FieldContainer create() {
+            container.parse(ByteBuffer.wrap(raw.getBytes()));
+            return container;
+        }
+
+        public void parsesEveryLevel() {
+            RepeatingGroup allocs = (RepeatingGroup) container.lookup(NoAllocs.TAG);
+            specify(allocs.instances().size(), must.equal(2));
+            RepeatingGroup parties = (RepeatingGroup) allocs.instances().get(0).lookup(NoPartyIds.TAG);
+            specify(parties.instances().size(), must.equal(2));
+            specify(parties.instances().get(1).getString(PartyID.TAG), must.equal("B"));
+            parties = (RepeatingGroup) allocs.instances().get(1).lookup(NoPartyIds.TAG);
+            specify(parties.instances().size(), must.equal(1));
+        }
+
+        public void continuesAfterTheOutermostGroup() {
+            specify(container.getString(Symbol.TAG), must.equal("GOOG"));
+        }
+
+        public void formatsInOriginalOrder() {
+            specify(container.format(), must.equal(raw));
+        }
+
+        public void encodesLikeFormat() {
+            ByteBuffer b = ByteBuffer.allocate(256);
+            container.encode(b);
+            specify(new String(b.array(), 0, b.position()), must.equal(raw));
+        }
+    }
+
+    public class NestedGroupWithWrongCount {
+        public void isRejected() {
+            final String raw = new RawMessageBuilder()
+                .field(NoAllocs.TAG, "1")
+                .field(AllocAccount.TAG, "1234")
+                .field(AllocShares.TAG, "900.00")
+                .field(NoPartyIds.TAG, "2")
+                .field(PartyID.TAG, "A")
+                .field(PartyRole.TAG, "1")
+                .field(Symbol.TAG, "GOOG")
+                .toString();
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    container.parse(ByteBuffer.wrap(raw.getBytes()));
+                }
+            }, must.raise(ParseException.class, "NoPartyIds(453): Incorrect NumInGroup count for repeating group. Expected: 2, but was: 1"));
+        }
+    }
+
+    public class RequiredGroup {
+        private final AllocationMessage message = new AllocationMessage(new MessageHeader(MsgTypeValue.ALLOCATION_INSTRUCTION));
+
+        public void isMissingWhenAbsent() {
+            message.parse(ByteBuffer.wrap(body().toString().getBytes()));
+            specify(message.missingField().prettyName(), must.equal("NoOrders(73)"));
+        }
+
+        public void acceptsEveryFieldOfAnInstance() {
+            String raw = body()
+                .field(NoOrders.TAG, "1")
+                .field(ClOrdID.TAG, "12807331319412")
+                .field(OrderID.TAG, "1")
+                .field(SecondaryOrderID.TAG, "2")
+                .field(ListID.TAG, "3")
+                .field(WaveNo.TAG, "4")
+                .toString();
+            message.parse(ByteBuffer.wrap(raw.getBytes()));
+            specify(message.missingField(), must.equal(null));
+            RepeatingGroup orders = (RepeatingGroup) message.lookup(NoOrders.TAG);
+            specify(orders.instances().get(0).getString(WaveNo.TAG), must.equal("4"));
+        }
+
+        private RawMessageBuilder body() {
+            return new RawMessageBuilder()
+                .field(AllocID.TAG, "12807331319411")
+                .field(AllocTransType.TAG, "0")
+                .field(Side.TAG, "2")
+                .field(Symbol.TAG, "GOOG")
+                .field(Shares.TAG, "1000.00")
+                .field(AvgPx.TAG, "370.00")
+                .field(TradeDate.TAG, "20011004");
+        }
+    }
+}
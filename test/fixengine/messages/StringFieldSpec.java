@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+import fixengine.tags.ClOrdID;
+
+@RunWith(JDaveRunner.class)
+public class StringFieldSpec extends Specification<StringField> {
+    private final StringField field = ClOrdID.TAG.newField(Required.YES);
+
+    public class FieldParsedFromBuffer {
+        public StringField create() {
+            field.parse(ByteBuffer.wrap("ABC-123\001".getBytes()));
+            return field;
+        }
+
+        public void exposesValueWithoutString() {
+            CharSequence value = field.getCharSequence();
+            specify(value.length(), must.equal(7));
+            specify(value.charAt(4), must.equal('1'));
+            specify(value.equals("ABC-123"));
+            specify(value.hashCode(), must.equal("ABC-123".hashCode()));
+        }
+
+        public void looksUpStringKeyedMaps() {
+            Map<String, Integer> orders = new HashMap<String, Integer>();
+            orders.put("ABC-123", 1);
+            specify(orders.get(field.getCharSequence()), must.equal(1));
+        }
+
+        public void createsStringOnDemand() {
+            specify(field.getValue(), must.equal("ABC-123"));
+            specify(field.format(), must.equal("11=ABC-123\001"));
+        }
+
+        public void equalsFieldWithTheSameValue() {
+            StringField other = ClOrdID.TAG.newField(Required.YES);
+            other.parseValue("ABC-123");
+            specify(field, must.equal(other));
+            specify(field.hashCode(), must.equal(other.hashCode()));
+        }
+    }
+
+    public class FieldWithStringValue {
+        public void exposesTheString() {
+            field.setValue("XYZ");
+            specify(field.getCharSequence(), must.equal("XYZ"));
+        }
+
+        public void hasNoValueAfterReset() {
+            field.parse(ByteBuffer.wrap("ABC\001".getBytes()));
+            field.reset();
+            specify(field.hasValue(), must.equal(false));
+            specify(field.getCharSequence(), must.equal(null));
+        }
+    }
+}
@@ -20,6 +20,8 @@ import jdave.junit4.JDaveRunner;
 
 import org.junit.runner.RunWith;
 
+import fixengine.tags.ClOrdID;
+
 /**
  * @author Pekka Enberg 
  */
@@ -42,4 +44,26 @@ public class TagSpec extends Specification<Tag<?>> {
             specify(Tag.isUserDefined(10000), must.equal(true));
         }
     }
-}
\ No newline at end of file
+
+    public class TagWithCachedPrototype {
+        public void equalsTagWithoutOne() {
+            Tag<StringField> tag = new Tag<StringField>(ClOrdID.TAG.value(), StringField.class);
+            Tag<StringField> other = new Tag<StringField>(ClOrdID.TAG.value(), StringField.class);
+            StringField field = tag.newField(Required.YES);
+            specify(tag, must.equal(other));
+            specify(tag.hashCode(), must.equal(other.hashCode()));
+            field.toString();
+            specify(field, must.equal(other.newField(Required.YES)));
+        }
+    }
+
+    public class TagWithCachedPrefix {
+        public void equalsTagWithoutOne() {
+            Tag<StringField> tag = new Tag<StringField>(ClOrdID.TAG.value(), StringField.class);
+            Tag<StringField> other = new Tag<StringField>(ClOrdID.TAG.value(), StringField.class);
+            tag.prefix();
+            specify(tag, must.equal(other));
+            specify(tag.hashCode(), must.equal(other.hashCode()));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+import fixengine.tags.BeginString;
+import fixengine.tags.BodyLength;
+import fixengine.tags.CheckSum;
+import fixengine.tags.MsgSeqNum;
+import fixengine.tags.MsgType;
+import fixengine.tags.SenderCompID;
+import fixengine.tags.SendingTime;
+import fixengine.tags.TargetCompID;
+import fixengine.tags.TestReqID;
+
+@RunWith(JDaveRunner.class)
+public class UnknownFieldsSpec extends Specification<UnknownFields> {
+    private final MessagePool pool = new MessagePool();
+
+    public class UserDefinedAndUndefinedTags {
+        private final String raw = new RawMessageBuilder()
+            .field(BeginString.TAG, "FIX.4.2")
+            .field(BodyLength.TAG, "73")
+            .field(MsgType.TAG, "0")
+            .field(SenderCompID.TAG, "Sender")
+            .field(TargetCompID.TAG, "Target")
+            .field(MsgSeqNum.TAG, "1")
+            .field(SendingTime.TAG, "20100701-12:09:40")
+            .field(9898, "value")
+            .field(TestReqID.TAG, "1")
+            .field(88, "0")
+            .field(CheckSum.TAG, "231")
+            .toString();
+
+        public void areCaptured() {
+            AbstractMessage message = parse(raw);
+            UnknownFields unknown = message.getUnknownFields();
+            specify(unknown.size(), must.equal(2));
+            specify(unknown.tagAt(0), must.equal(9898));
+            specify(unknown.getString(9898), must.equal("value"));
+            specify(unknown.getInt(88), must.equal(0));
+        }
+
+        public void doNotHideDeclaredFields() {
+            specify(parse(raw).getString(TestReqID.TAG), must.equal("1"));
+        }
+
+        public void areFormattedAfterDeclaredFields() {
+            specify(parse(raw).format().endsWith("112=1\0019898=value\00188=0\00110=231\001"));
+        }
+
+        public void areClearedOnReset() {
+            AbstractMessage message = parse(raw);
+            pool.release(message);
+            specify(pool.acquire(MsgTypeValue.HEARTBEAT) == message);
+            specify(message.getUnknownFields(), must.equal(null));
+        }
+    }
+
+    public class NoUnknownTags {
+        private final String raw = new RawMessageBuilder()
+            .field(BeginString.TAG, "FIX.4.2")
+            .field(BodyLength.TAG, "57")
+            .field(MsgType.TAG, "0")
+            .field(SenderCompID.TAG, "Sender")
+            .field(TargetCompID.TAG, "Target")
+            .field(MsgSeqNum.TAG, "1")
+            .field(SendingTime.TAG, "20100701-12:09:40")
+            .field(TestReqID.TAG, "1")
+            .field(CheckSum.TAG, "206")
+            .toString();
+
+        public void allocateNoTable() {
+            specify(parse(raw).getUnknownFields(), must.equal(null));
+        }
+    }
+
+    private AbstractMessage parse(String raw) {
+        final Message[] result = new Message[1];
+        Parser.parseCapturingUnknownFields(ByteBuffer.wrap(raw.getBytes()), pool, new Parser.Callback() {
+            @Override public void message(Message m) {
+                result[0] = m;
+            }
+
+            @Override public void invalidMessage(int msgSeqNum, SessionRejectReasonValue reason, String text) {
+                throw new AssertionError(text);
+            }
+
+            @Override public void unsupportedMsgType(String msgType, int msgSeqNum) {
+                throw new AssertionError(msgType);
+            }
+
+            @Override public void invalidMsgType(String msgType, int msgSeqNum) {
+                throw new AssertionError(msgType);
+            }
+
+            @Override public void garbledMessage(String text) {
+                throw new AssertionError(text);
+            }
+        });
+        return (AbstractMessage) result[0];
+    }
+}
@@ -72,4 +72,39 @@ public class UtcTimestampFieldSpec extends Specification<UtcTimestampField> {
         public void parsesStringTimestampToDateTimeValue() {
             specify(timestamp.dateValue(), must.equal(DATE_TIME));
         }
-    }}
\ No newline at end of file
+    }
+
+    public class TimestampFieldThatHasSubsecondPrecision {
+        public UtcTimestampField create() {
+            return timestamp = new UtcTimestampField(tag);
+        }
+
+        public void parsesAndFormatsMilliseconds() {
+            timestamp.parseValue("20080911-01:02:03.456");
+            specify(timestamp.getEpochMillis(), must.equal(DATE_TIME.getMillis() + 456));
+            specify(timestamp.value(), must.equal("20080911-01:02:03.456"));
+        }
+
+        public void parsesAndFormatsMicroseconds() {
+            timestamp.parseValue("20080911-01:02:03.000789");
+            specify(timestamp.getEpochMicros(), must.equal(DATE_TIME.getMillis() * 1000 + 789));
+            specify(timestamp.value(), must.equal("20080911-01:02:03.000789"));
+        }
+
+        public void parsesLeapSecond() {
+            timestamp.parseValue("20081231-23:59:60");
+            specify(timestamp.isFormatValid(), must.equal(true));
+            specify(timestamp.dateValue(), must.equal(new DateTime(2009, 1, 1, 0, 0, 0, 0, zoneUTC)));
+        }
+
+        public void failsToParseInvalidDates() {
+            timestamp.parse("20080230-01:02:03");
+            specify(timestamp.isFormatValid(), must.equal(false));
+        }
+
+        public void formatsDatesBeforeEpoch() {
+            timestamp.setValue(new DateTime(1969, 12, 31, 23, 59, 59, 0, zoneUTC));
+            specify(timestamp.value(), must.equal("19691231-23:59:59"));
+        }
+    }
+}
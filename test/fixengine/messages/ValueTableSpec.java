@@ -0,0 +1,85 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fixengine.messages;
+
+import java.nio.ByteBuffer;
+
+import jdave.Block;
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(JDaveRunner.class)
+public class ValueTableSpec extends Specification<ValueTable<?>> {
+    public class CharacterValues {
+        private final ValueTable<SideValue> table = new ValueTable<SideValue>(SideValue.values());
+
+        public void areDecoded() {
+            specify(table.parse('1'), must.equal(SideValue.BUY));
+            specify(table.parse('C'), must.equal(SideValue.OPPOSITE));
+            specify(table.lookup(buffer("A"), 0, 1), must.equal(SideValue.CROSS_SHORT_EXEMPT));
+        }
+
+        public void rejectUnknownValues() {
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    table.parse('Z');
+                }
+            }, must.raise(InvalidValueForTagException.class));
+        }
+
+        public void areEncoded() {
+            specify(new String(table.bytes(SideValue.SELL)), must.equal("2"));
+        }
+    }
+
+    public class NumericValues {
+        private final ValueTable<SessionRejectReasonValue> table = new ValueTable<SessionRejectReasonValue>(SessionRejectReasonValue.values());
+
+        public void areDecoded() {
+            specify(table.parse(0), must.equal(SessionRejectReasonValue.INVALID_TAG_NUMBER));
+            specify(table.lookup(buffer("17"), 0, 2), must.equal(SessionRejectReasonValue.FIELD_DELIMITER_IN_VALUE));
+            specify(table.lookup("5"), must.equal(SessionRejectReasonValue.INVALID_VALUE));
+        }
+
+        public void rejectUnknownValues() {
+            specify(table.lookup(99), must.equal(null));
+            specify(table.lookup(buffer("1x"), 0, 2), must.equal(null));
+        }
+    }
+
+    public class MessageTypes {
+        public void areDecoded() {
+            specify(MsgTypeValue.lookup(buffer("A"), 0, 1), must.equal(MsgTypeValue.LOGON));
+            specify(MsgTypeValue.lookup(buffer("j"), 0, 1), must.equal(MsgTypeValue.BUSINESS_MESSAGE_REJECT));
+            specify(MsgTypeValue.lookup(buffer("00"), 0, 2), must.equal(null));
+            specify(MsgTypeValue.parse("8"), must.equal(MsgTypeValue.EXECUTION_REPORT));
+        }
+
+        public void rejectUnknownTypes() {
+            specify(new Block() {
+                @Override public void run() throws Throwable {
+                    MsgTypeValue.parse("AI");
+                }
+            }, must.raise(UnsupportedMsgTypeException.class));
+        }
+    }
+
+    private static ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes());
+    }
+}
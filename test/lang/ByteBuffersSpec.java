@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package lang;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdave.Specification;
+import jdave.junit4.JDaveRunner;
+
+import org.junit.runner.RunWith;
+
+@RunWith(JDaveRunner.class)
+public class ByteBuffersSpec extends Specification<Void> {
+    private static final byte SOH = 1;
+
+    public class IndexOf {
+        public void findsEveryPositionInAndAfterWords() {
+            for (int length = 1; length < 40; length++) {
+                for (int index = 0; index < length; index++) {
+                    ByteBuffer b = buffer(length, index);
+                    specify(ByteBuffers.indexOf(b, 0, length, SOH), must.equal(index));
+                    specify(ByteBuffers.indexOf(b.order(ByteOrder.LITTLE_ENDIAN), 0, length, SOH), must.equal(index));
+                }
+            }
+        }
+
+        public void findsFirstOfSeveralOccurrences() {
+            ByteBuffer b = ByteBuffer.wrap("58=\001\001\001\001\001\001\001\001\001".getBytes());
+            specify(ByteBuffers.indexOf(b, 0, b.limit(), SOH), must.equal(3));
+        }
+
+        public void ignoresBytesThatDifferOnlyInHighBit() {
+            byte[] bytes = new byte[16];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = (byte) 0x81;
+            bytes[12] = SOH;
+            specify(ByteBuffers.indexOf(ByteBuffer.wrap(bytes), 0, bytes.length, SOH), must.equal(12));
+        }
+
+        public void respectsRange() {
+            ByteBuffer b = ByteBuffer.wrap("\001bcdefghijk\001".getBytes());
+            specify(ByteBuffers.indexOf(b, 1, 11, SOH), must.equal(-1));
+            specify(ByteBuffers.indexOf(b, 1, 12, SOH), must.equal(11));
+        }
+    }
+
+    private static ByteBuffer buffer(int length, int index) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = (byte) ('a' + i % 26);
+        bytes[index] = SOH;
+        return ByteBuffer.wrap(bytes);
+    }
+}
@@ -15,6 +15,9 @@
  */
 package lang;
 
+import java.nio.ByteBuffer;
+
+import jdave.Block;
 import jdave.Specification;
 import jdave.junit4.JDaveRunner;
 
@@ -38,4 +41,34 @@ public class IntegersSpec extends Specification<Void> {
             specify(Integers.zfill(1234, 3), must.equal("1234"));
         }
     }
-}
\ No newline at end of file
+
+    public class IntegerInBuffer {
+        public void isParsedFromRange() {
+            specify(Integers.parseInt(buffer("34=1234\001"), 3, 7), must.equal(1234));
+        }
+
+        public void isParsedWithSign() {
+            specify(Integers.parseInt(buffer("-00023"), 0, 6), must.equal(-23));
+        }
+
+        public void failsToParseNonDigits() {
+            specify(parse("1.23"), must.raise(NumberFormatException.class));
+        }
+
+        public void failsToParseOverflowingValues() {
+            specify(parse("2147483648"), must.raise(NumberFormatException.class));
+        }
+    }
+
+    private static ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes());
+    }
+
+    private static Block parse(final String s) {
+        return new Block() {
+            @Override public void run() throws Throwable {
+                Integers.parseInt(buffer(s), 0, s.length());
+            }
+        };
+    }
+}